@@ -31,12 +31,14 @@ import org.jfrog.build.extractor.clientConfiguration.ArtifactoryBuildInfoClientB
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBaseClient;
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient;
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryDependenciesClient;
+import org.jfrog.hudson.generic.ArtifactsUploadClient;
 import org.jfrog.hudson.util.CredentialManager;
 import org.jfrog.hudson.util.Credentials;
 import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 import org.jfrog.hudson.util.RepositoriesUtils;
 import org.jfrog.hudson.util.converters.ArtifactoryServerConverter;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -53,6 +55,7 @@ public class ArtifactoryServer implements Serializable {
     private static final Logger log = Logger.getLogger(ArtifactoryServer.class.getName());
 
     private static final int DEFAULT_CONNECTION_TIMEOUT = 300;    // 5 Minutes
+    private static final int DEFAULT_DEPLOYMENT_THREADS = 1;
     private final String url;
     private final String id;
     // Network timeout in seconds to use both for connection establishment and for unanswered requests
@@ -62,6 +65,9 @@ public class ArtifactoryServer implements Serializable {
     // This object will be null instead of 0. In the ArtifactoryBuilder there is a check if the object is null then we are
     // setting to 3 that is the default.
     private Integer connectionRetry;
+    // Number of artifacts uploaded concurrently by the generic deployer. Set to Integer for the same upgrade
+    // reason as connectionRetry.
+    private Integer deploymentThreads;
     /**
      * List of repository keys, last time we checked. Copy on write semantics.
      */
@@ -140,6 +146,28 @@ public class ArtifactoryServer implements Serializable {
         this.connectionRetry = connectionRetry;
     }
 
+    public int getDeploymentThreads() {
+        if (deploymentThreads == null || deploymentThreads < 1) {
+            deploymentThreads = DEFAULT_DEPLOYMENT_THREADS;
+        }
+        return deploymentThreads;
+    }
+
+    @DataBoundSetter
+    public void setDeploymentThreads(int deploymentThreads) {
+        this.deploymentThreads = deploymentThreads;
+    }
+
+    /**
+     * Decides how many threads to use for deploying artifacts to this server.
+     *
+     * @param jobDeploymentThreads The number of threads configured in the job, 0 or less if not configured.
+     * @return The job's number of threads if configured, otherwise the server's number of threads.
+     */
+    public int getDeploymentThreads(int jobDeploymentThreads) {
+        return jobDeploymentThreads > 0 ? jobDeploymentThreads : getDeploymentThreads();
+    }
+
     public List<String> getLocalRepositoryKeys(Credentials credentials) throws IOException {
         ArtifactoryBuildInfoClient client = createArtifactoryClient(credentials.getUsername(),
                 credentials.getPassword(), createProxyConfiguration(Jenkins.getInstance().proxy));
@@ -271,6 +299,22 @@ public class ArtifactoryServer implements Serializable {
         return clientBuilder;
     }
 
+    /**
+     * This method might run on slaves, this is why we provide it with a proxy from the master config
+     */
+    public ArtifactsUploadClient createArtifactsUploadClient(String userName, String password,
+                                                             ProxyConfiguration proxyConfiguration, Log logger) {
+        ArtifactsUploadClient client = new ArtifactsUploadClient(url, userName, password, logger);
+        client.setConnectionTimeout(timeout);
+        setRetryParams(client);
+        if (!bypassProxy && proxyConfiguration != null) {
+            client.setProxyConfiguration(proxyConfiguration.host, proxyConfiguration.port, proxyConfiguration.username,
+                    proxyConfiguration.password);
+        }
+
+        return client;
+    }
+
     /**
      * Set the retry params for the base client
      *
@@ -21,7 +21,6 @@ import org.jfrog.build.api.Dependency;
 import org.jfrog.build.api.dependency.BuildDependency;
 import org.jfrog.build.client.ProxyConfiguration;
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient;
-import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryDependenciesClient;
 import org.jfrog.hudson.*;
 import org.jfrog.hudson.action.ActionableHelper;
 import org.jfrog.hudson.release.promotion.UnifiedPromoteBuildAction;
@@ -31,6 +30,7 @@ import org.jfrog.hudson.util.plugins.MultiConfigurationUtils;
 import org.jfrog.hudson.util.plugins.PluginsUtils;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.bind.JavaScriptMethod;
@@ -47,6 +47,8 @@ import java.util.List;
  */
 public class ArtifactoryGenericConfigurator extends BuildWrapper implements DeployerOverrider, ResolverOverrider,
         BuildInfoAwareConfigurator, MultiConfigurationAware {
+    // Downloads don't load the server as much as deployments, so they have their own default
+    private static final int DEFAULT_DOWNLOAD_THREADS = 4;
 
     private final ServerDetails deployerDetails;
     private final ServerDetails resolverDetails;
@@ -73,6 +75,20 @@ public class ArtifactoryGenericConfigurator extends BuildWrapper implements Depl
     private boolean multiConfProject;
     private String customBuildName;
     private boolean overrideBuildName;
+    /**
+     * Number of artifacts to upload concurrently, overrides the Artifactory server configuration if greater than 0
+     */
+    private int deploymentThreads;
+    private boolean bundleSmallFiles;
+    /**
+     * Number of artifacts to download concurrently, {@link #DEFAULT_DOWNLOAD_THREADS} if not greater than 0
+     */
+    private int downloadThreads;
+    private boolean useDownloadCache;
+    /**
+     * Bound in MB of the node's download cache, {@link DownloadCache#DEFAULT_MAX_SIZE_MB} if not greater than 0
+     */
+    private int downloadCacheMaxSize;
 
     /**
      * @deprecated: Use org.jfrog.hudson.generic.ArtifactoryGenericConfigurator#getDeployerCredentials()()
@@ -248,6 +264,66 @@ public class ArtifactoryGenericConfigurator extends BuildWrapper implements Depl
         return overrideBuildName;
     }
 
+    public int getDeploymentThreads() {
+        return deploymentThreads;
+    }
+
+    @DataBoundSetter
+    public void setDeploymentThreads(int deploymentThreads) {
+        this.deploymentThreads = deploymentThreads;
+    }
+
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
+    private int getEffectiveDownloadThreads() {
+        return downloadThreads > 0 ? downloadThreads : DEFAULT_DOWNLOAD_THREADS;
+    }
+
+    @DataBoundSetter
+    public void setDownloadThreads(int downloadThreads) {
+        this.downloadThreads = downloadThreads;
+    }
+
+    public boolean isUseDownloadCache() {
+        return useDownloadCache;
+    }
+
+    @DataBoundSetter
+    public void setUseDownloadCache(boolean useDownloadCache) {
+        this.useDownloadCache = useDownloadCache;
+    }
+
+    public int getDownloadCacheMaxSize() {
+        return downloadCacheMaxSize;
+    }
+
+    @DataBoundSetter
+    public void setDownloadCacheMaxSize(int downloadCacheMaxSize) {
+        this.downloadCacheMaxSize = downloadCacheMaxSize;
+    }
+
+    /**
+     * @return The bound of the download cache in bytes, or 0 if the cache is not used.
+     */
+    private long getEffectiveDownloadCacheMaxSize() {
+        if (!useDownloadCache) {
+            return 0;
+        }
+        long maxSizeMB = downloadCacheMaxSize > 0 ? downloadCacheMaxSize : DownloadCache.DEFAULT_MAX_SIZE_MB;
+        return maxSizeMB * 1024 * 1024;
+    }
+
+    public boolean isBundleSmallFiles() {
+        return bundleSmallFiles;
+    }
+
+    @DataBoundSetter
+    public void setBundleSmallFiles(boolean bundleSmallFiles) {
+        this.bundleSmallFiles = bundleSmallFiles;
+    }
+
     public ArtifactoryServer getArtifactoryServer() {
         return RepositoriesUtils.getArtifactoryServer(getArtifactoryName(), getDescriptor().getArtifactoryServers());
     }
@@ -296,7 +372,6 @@ public class ArtifactoryGenericConfigurator extends BuildWrapper implements Depl
             proxyConfiguration = ArtifactoryServer.createProxyConfiguration(proxy);
         }
 
-        ArtifactoryDependenciesClient dependenciesClient = null;
         try {
             if (isUseSpecs()) {
                 String spec = SpecUtils.getSpecStringFromSpecConf(downloadSpec, build.getEnvironment(listener),
@@ -305,20 +380,19 @@ public class ArtifactoryGenericConfigurator extends BuildWrapper implements Depl
                 publishedDependencies = workspace.act(new FilesResolverCallable(
                         new JenkinsBuildInfoLog(listener), username, password, resolverServer.getUrl(), spec, proxyConfiguration));
             } else {
-                dependenciesClient = resolverServer.createArtifactoryDependenciesClient(username, password, proxyConfiguration, listener);
-                GenericArtifactsResolver artifactsResolver = new GenericArtifactsResolver(build, listener, dependenciesClient);
-                publishedDependencies = artifactsResolver.retrievePublishedDependencies(resolvePattern);
-                buildDependencies = artifactsResolver.retrieveBuildDependencies(resolvePattern);
+                GenericArtifactsResolver artifactsResolver = new GenericArtifactsResolver(build, listener, resolverServer,
+                        username, password, proxyConfiguration, getEffectiveDownloadThreads(),
+                        getEffectiveDownloadCacheMaxSize());
+                GenericArtifactsResolver.ResolvedDependencies resolvedDependencies =
+                        artifactsResolver.retrieveDependencies(resolvePattern);
+                publishedDependencies = resolvedDependencies.getPublishedDependencies();
+                buildDependencies = resolvedDependencies.getBuildDependencies();
             }
 
             return createEnvironmentOnSuccessfulSetup();
         } catch (Exception e) {
             e.printStackTrace(listener.error(e.getMessage()));
             build.setResult(Result.FAILURE);
-        } finally {
-            if (dependenciesClient != null) {
-                dependenciesClient.close();
-            }
         }
         return null;
     }
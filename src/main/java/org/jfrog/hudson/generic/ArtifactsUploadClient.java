@@ -0,0 +1,373 @@
+package org.jfrog.hudson.generic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Multimap;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBaseClient;
+import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
+import org.jfrog.hudson.util.ChecksumCalculator;
+import org.jfrog.hudson.util.JsonMappers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deploys artifacts with the HTTP client of the build-info clients, so the requests use the credentials, proxy,
+ * timeout and retries configured for the Artifactory server.
+ * Besides single artifacts, the client deploys bundles of small files as exploded archives, see {@link BundledArtifactsDeployer}.
+ * Unlike {@link org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient#deployArtifact(DeployDetails)},
+ * the deployment by checksum is a separate request, so the caller knows whether the content was uploaded, and the
+ * checksums of an uploaded file are calculated while it is sent, so the file is not read beforehand for hashing.
+ * Not thread safe, each deployment thread should use its own client.
+ */
+public class ArtifactsUploadClient extends ArtifactoryBaseClient {
+    // For smaller files, the extra request of the checksum deploy takes about as long as the upload
+    public static final long CHECKSUM_DEPLOY_MIN_FILE_SIZE = 10 * 1024;
+    private static final String CHECKSUM_DEPLOY_HEADER = "X-Checksum-Deploy";
+    private static final String SHA1_HEADER = "X-Checksum-Sha1";
+    private static final String MD5_HEADER = "X-Checksum-Md5";
+    private static final String EXPLODE_ARCHIVE_HEADER = "X-Explode-Archive";
+
+    public ArtifactsUploadClient(String artifactoryUrl, String username, String password, Log log) {
+        super(artifactoryUrl, username, password, log);
+    }
+
+    /**
+     * Deploys the artifact without its content, if Artifactory already has a file with the artifact's SHA1.
+     *
+     * @return True if the artifact was deployed, false if its content should be uploaded.
+     */
+    public boolean deployByChecksum(DeployDetails details) throws IOException {
+        HttpPut httpPut = createHttpPut(details);
+        httpPut.addHeader(CHECKSUM_DEPLOY_HEADER, "true");
+        HttpResponse response = httpClient.getHttpClient().execute(httpPut);
+        try {
+            return isSuccessful(response.getStatusLine());
+        } finally {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+
+    /**
+     * Uploads the content of the artifact. The file is read once: its checksums are calculated while it is sent.
+     * The checksums are verified against the checksums of the deploy details, if it has any, and against the checksums
+     * which Artifactory calculated.
+     *
+     * @return A map from each of {@link ChecksumCalculator#SHA1} and {@link ChecksumCalculator#MD5} to the checksum
+     * of the uploaded content.
+     */
+    public Map<String, String> upload(DeployDetails details) throws IOException {
+        String artifactUrl = getArtifactUrl(details.getTargetRepository(), details.getArtifactPath());
+        HttpPut httpPut = createHttpPut(details);
+        DigestingFileEntity entity = new DigestingFileEntity(details.getFile());
+        httpPut.setEntity(entity);
+        String response = execute(httpPut, "Failed to deploy file: " + artifactUrl);
+        Map<String, String> checksums = entity.getChecksums();
+        if (checksums == null) {
+            throw new IOException("Failed to deploy file: " + artifactUrl + ". The file content was not sent.");
+        }
+        verifyChecksum(artifactUrl, ChecksumCalculator.SHA1, details.getSha1(), checksums);
+        verifyChecksum(artifactUrl, ChecksumCalculator.MD5, details.getMd5(), checksums);
+        JsonNode serverChecksums = readServerChecksums(response);
+        verifyChecksum(artifactUrl, ChecksumCalculator.SHA1, serverChecksums.path("sha1").textValue(), checksums);
+        verifyChecksum(artifactUrl, ChecksumCalculator.MD5, serverChecksums.path("md5").textValue(), checksums);
+        return checksums;
+    }
+
+    /**
+     * Deploys files to a single directory of Artifactory with one request. The files are zipped into an archive while
+     * it is streamed, and Artifactory extracts the archive into the directory.
+     * The checksums of each file are calculated while it is zipped.
+     *
+     * @param archiveDetails The deploy details of the archive. Its target path determines the directory to
+     *                       extract into, and its properties are set on all the extracted files.
+     * @param files          Map of entry names to the files to zip.
+     * @return Map of entry names to the checksums of their files.
+     */
+    public Map<String, Map<String, String>> deployExplodedArchive(DeployDetails archiveDetails, Map<String, File> files)
+            throws IOException {
+        HttpPut httpPut = new HttpPut(getDeploymentUrl(archiveDetails));
+        httpPut.addHeader(EXPLODE_ARCHIVE_HEADER, "true");
+        httpPut.addHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        ZipEntity entity = new ZipEntity(files);
+        httpPut.setEntity(entity);
+        execute(httpPut, "Failed to deploy archive: " + getArtifactUrl(archiveDetails.getTargetRepository(),
+                archiveDetails.getArtifactPath()));
+        if (entity.getChecksums() == null) {
+            throw new IOException("Failed to deploy archive: " + archiveDetails.getArtifactPath() + ". The archive was not sent.");
+        }
+        return entity.getChecksums();
+    }
+
+    /**
+     * Finds the checksums which Artifactory calculated for files in a single directory, with one AQL query.
+     *
+     * @param directory The directory path in the repository, or an empty string for the repository root.
+     * @param names     The names of the files in the directory.
+     * @return Map of file names to their checksums. Files which don't exist in Artifactory are missing from the map.
+     */
+    public Map<String, Map<String, String>> getChecksums(String repository, String directory, Collection<String> names)
+            throws IOException {
+        ObjectMapper mapper = JsonMappers.strictMapper();
+        ObjectNode criteria = mapper.createObjectNode()
+                .put("repo", repository)
+                .put("path", StringUtils.isEmpty(directory) ? "." : directory)
+                .put("type", "file");
+        ArrayNode nameCriteria = criteria.putArray("$or");
+        for (String name : names) {
+            nameCriteria.addObject().put("name", name);
+        }
+        // Non-admin users must include the repo, path and name fields
+        String query = "items.find(" + mapper.writeValueAsString(criteria) + ")" +
+                ".include(\"repo\",\"path\",\"name\",\"actual_sha1\",\"actual_md5\")";
+        String searchUrl = StringUtils.removeEnd(artifactoryUrl, "/") + "/api/search/aql";
+        HttpPost httpPost = new HttpPost(searchUrl);
+        httpPost.setEntity(new StringEntity(query, ContentType.TEXT_PLAIN.withCharset("UTF-8")));
+        String response = execute(httpPost, "Failed to search checksums: " + searchUrl);
+
+        Map<String, Map<String, String>> checksums = new HashMap<String, Map<String, String>>();
+        for (JsonNode item : mapper.readTree(response).path("results")) {
+            Map<String, String> itemChecksums = new HashMap<String, String>();
+            itemChecksums.put(ChecksumCalculator.SHA1, item.path("actual_sha1").asText());
+            itemChecksums.put(ChecksumCalculator.MD5, item.path("actual_md5").asText());
+            checksums.put(item.path("name").asText(), itemChecksums);
+        }
+        return checksums;
+    }
+
+    /**
+     * @param expected The expected checksum, or null if unknown.
+     */
+    private static void verifyChecksum(String artifactUrl, String algorithm, String expected, Map<String, String> checksums)
+            throws IOException {
+        String actual = checksums.get(algorithm);
+        if (StringUtils.isNotBlank(expected) && !expected.equalsIgnoreCase(actual)) {
+            throw new IOException(algorithm + " mismatch at '" + artifactUrl + "' expected: " + expected + ", got " +
+                    actual + ". Make sure that the file was not modified during the deployment.");
+        }
+    }
+
+    /**
+     * @return The checksums in the deployment response, or a missing node if the response has no checksums.
+     */
+    private JsonNode readServerChecksums(String response) {
+        if (StringUtils.isBlank(response)) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return JsonMappers.strictMapper().readTree(response).path("checksums");
+        } catch (IOException e) {
+            log.debug("Could not read the checksums of the deployment response: " + e.getMessage());
+            return MissingNode.getInstance();
+        }
+    }
+
+    private HttpPut createHttpPut(DeployDetails details) {
+        HttpPut httpPut = new HttpPut(getDeploymentUrl(details));
+        if (StringUtils.isNotBlank(details.getSha1())) {
+            httpPut.addHeader(SHA1_HEADER, details.getSha1());
+        }
+        if (StringUtils.isNotBlank(details.getMd5())) {
+            httpPut.addHeader(MD5_HEADER, details.getMd5());
+        }
+        // Artifactory rejects an unauthorized or conflicting deployment before the content is sent
+        httpPut.addHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE);
+        return httpPut;
+    }
+
+    /**
+     * @return The response content.
+     */
+    private String execute(HttpUriRequest request, String errorMessage) throws IOException {
+        HttpResponse response = httpClient.getHttpClient().execute(request);
+        HttpEntity entity = response.getEntity();
+        try {
+            StatusLine status = response.getStatusLine();
+            if (!isSuccessful(status)) {
+                throw new IOException(errorMessage + ". Status code: " + status.getStatusCode() + " " +
+                        StringUtils.defaultString(status.getReasonPhrase()));
+            }
+            return entity != null ? EntityUtils.toString(entity, "UTF-8") : "";
+        } finally {
+            EntityUtils.consumeQuietly(entity);
+        }
+    }
+
+    private static boolean isSuccessful(StatusLine status) {
+        return status.getStatusCode() == 200 || status.getStatusCode() == 201;
+    }
+
+    /**
+     * @return The URL of the artifact in Artifactory, without the deployment properties.
+     */
+    public String getArtifactUrl(String repository, String artifactPath) {
+        StringBuilder artifactUrl = new StringBuilder(StringUtils.removeEnd(artifactoryUrl, "/")).append("/")
+                .append(encodePath(repository));
+        if (!artifactPath.startsWith("/")) {
+            artifactUrl.append("/");
+        }
+        return artifactUrl.append(encodePath(artifactPath)).toString();
+    }
+
+    /**
+     * @return The deployment URL of the artifact, including the deployment properties as matrix params.
+     */
+    public String getDeploymentUrl(DeployDetails details) {
+        StringBuilder deploymentUrl = new StringBuilder(getArtifactUrl(details.getTargetRepository(), details.getArtifactPath()));
+        Multimap<String, String> properties = details.getProperties();
+        if (properties != null) {
+            for (Map.Entry<String, Collection<String>> property : properties.asMap().entrySet()) {
+                deploymentUrl.append(";").append(encode(property.getKey())).append("=");
+                boolean first = true;
+                for (String value : property.getValue()) {
+                    if (!first) {
+                        deploymentUrl.append(",");
+                    }
+                    deploymentUrl.append(encode(value));
+                    first = false;
+                }
+            }
+        }
+        return deploymentUrl.toString();
+    }
+
+    /**
+     * The content of a file, digested while it is sent. The entity is repeatable: a retried request reads and
+     * digests the file again.
+     */
+    private static class DigestingFileEntity extends AbstractHttpEntity {
+        private final File file;
+        private volatile Map<String, String> checksums;
+
+        DigestingFileEntity(File file) {
+            this.file = file;
+            setContentType("binary/octet-stream");
+        }
+
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        public long getContentLength() {
+            return file.length();
+        }
+
+        public InputStream getContent() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            checksums = ChecksumCalculator.copyAndCalculateChecksums(file, out, ChecksumCalculator.SHA1, ChecksumCalculator.MD5);
+        }
+
+        public boolean isStreaming() {
+            return false;
+        }
+
+        /**
+         * @return The checksums of the content which was last sent, or null if the content was not sent.
+         */
+        Map<String, String> getChecksums() {
+            return checksums;
+        }
+    }
+
+    /**
+     * A zip archive of files, written while it is sent. The size of the archive is unknown until it is written, so
+     * it is sent in chunks. The entity is repeatable: a retried request zips and digests the files again.
+     */
+    private static class ZipEntity extends AbstractHttpEntity {
+        private final Map<String, File> files;
+        private volatile Map<String, Map<String, String>> checksums;
+
+        ZipEntity(Map<String, File> files) {
+            this.files = files;
+            setContentType("application/zip");
+            setChunked(true);
+        }
+
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        public long getContentLength() {
+            return -1;
+        }
+
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("The archive can only be written to a stream");
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            Map<String, Map<String, String>> entriesChecksums = new HashMap<String, Map<String, String>>();
+            // The connection stream is not closed by the zip stream
+            ZipOutputStream zip = new ZipOutputStream(new CloseShieldOutputStream(out));
+            for (Map.Entry<String, File> entry : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                entriesChecksums.put(entry.getKey(), ChecksumCalculator.copyAndCalculateChecksums(entry.getValue(), zip,
+                        ChecksumCalculator.SHA1, ChecksumCalculator.MD5));
+                zip.closeEntry();
+            }
+            zip.close();
+            checksums = entriesChecksums;
+        }
+
+        public boolean isStreaming() {
+            return false;
+        }
+
+        /**
+         * @return Map of entry names to the checksums of their files, or null if the archive was not sent.
+         */
+        Map<String, Map<String, String>> getChecksums() {
+            return checksums;
+        }
+    }
+
+    private static String encodePath(String path) {
+        String[] segments = StringUtils.splitPreserveAllTokens(path, "/");
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                encoded.append("/");
+            }
+            encoded.append(encode(segments[i]));
+        }
+        return encoded.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
+import org.jfrog.hudson.util.ChecksumCalculator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Deploys many small files with few requests. Small files which are deployed to the same directory with the same
+ * properties are zipped into an archive, which Artifactory extracts into the directory.
+ * The deployed artifacts carry the checksums of the individual files, as if each file was deployed by itself.
+ * After a bundle is deployed, the checksums of its files are compared with the checksums calculated by Artifactory.
+ */
+public class BundledArtifactsDeployer {
+    public static final long MAX_FILE_SIZE = 64 * 1024;
+    // Below this number of files in a directory, the files are deployed one by one
+    private static final int MIN_BUNDLE_FILES = 10;
+    private static final int MAX_BUNDLE_FILES = 1000;
+    private static final String ARCHIVE_NAME_PREFIX = "artifactory-bundle-";
+
+    private final Log log;
+
+    public BundledArtifactsDeployer(Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Groups the small files into bundles.
+     *
+     * @param notBundled The artifacts which were not bundled, and should be deployed one by one, are added to this collection.
+     * @return The bundles, to be deployed by {@link #deployBundle(ArtifactsUploadClient, List)}.
+     */
+    public List<List<DeployDetails>> createBundles(Collection<DeployDetails> artifactsToDeploy, Collection<DeployDetails> notBundled) {
+        List<List<DeployDetails>> bundles = Lists.newArrayList();
+        Map<List<Object>, List<DeployDetails>> groups = Maps.newLinkedHashMap();
+        for (DeployDetails artifact : artifactsToDeploy) {
+            if (artifact.getFile().length() > MAX_FILE_SIZE) {
+                notBundled.add(artifact);
+                continue;
+            }
+            List<Object> key = Arrays.<Object>asList(artifact.getTargetRepository(), getDirectory(artifact.getArtifactPath()),
+                    artifact.getProperties());
+            List<DeployDetails> group = groups.get(key);
+            if (group == null) {
+                group = Lists.newArrayList();
+                groups.put(key, group);
+            }
+            group.add(artifact);
+        }
+
+        for (List<DeployDetails> group : groups.values()) {
+            if (group.size() < MIN_BUNDLE_FILES) {
+                notBundled.addAll(group);
+                continue;
+            }
+            bundles.addAll(Lists.partition(group, MAX_BUNDLE_FILES));
+        }
+        return bundles;
+    }
+
+    /**
+     * Deploys the bundle as a single archive. Safe for use by multiple threads, each with its own client.
+     *
+     * @return The deployed artifacts, with their checksums.
+     */
+    public List<DeployDetails> deployBundle(ArtifactsUploadClient client, List<DeployDetails> bundle) throws IOException {
+        DeployDetails first = bundle.get(0);
+        String directory = getDirectory(first.getArtifactPath());
+        Map<String, DeployDetails> entries = Maps.newLinkedHashMap();
+        Map<String, File> files = Maps.newLinkedHashMap();
+        for (DeployDetails artifact : bundle) {
+            String entryName = StringUtils.substringAfterLast("/" + artifact.getArtifactPath(), "/");
+            entries.put(entryName, artifact);
+            files.put(entryName, artifact.getFile());
+        }
+
+        // Bundles of the same directory may be deployed concurrently
+        String archiveName = ARCHIVE_NAME_PREFIX + UUID.randomUUID() + ".zip";
+        DeployDetails archiveDetails = new DeployDetails.Builder()
+                .file(first.getFile())
+                .artifactPath(StringUtils.isEmpty(directory) ? archiveName : directory + "/" + archiveName)
+                .targetRepository(first.getTargetRepository())
+                .addProperties(first.getProperties())
+                .build();
+        log.info("Deploying " + bundle.size() + " artifacts to " +
+                client.getArtifactUrl(first.getTargetRepository(), directory) + " as an exploded archive");
+        Map<String, Map<String, String>> checksums = client.deployExplodedArchive(archiveDetails, files);
+        verifyChecksums(client, first.getTargetRepository(), directory, checksums);
+
+        List<DeployDetails> deployed = Lists.newArrayList();
+        for (Map.Entry<String, DeployDetails> entry : entries.entrySet()) {
+            DeployDetails artifact = entry.getValue();
+            Map<String, String> fileChecksums = checksums.get(entry.getKey());
+            deployed.add(new DeployDetails.Builder()
+                    .file(artifact.getFile())
+                    .artifactPath(artifact.getArtifactPath())
+                    .targetRepository(artifact.getTargetRepository())
+                    .md5(fileChecksums.get(ChecksumCalculator.MD5)).sha1(fileChecksums.get(ChecksumCalculator.SHA1))
+                    .addProperties(artifact.getProperties())
+                    .build());
+        }
+        return deployed;
+    }
+
+    private void verifyChecksums(ArtifactsUploadClient client, String repository, String directory, Map<String, Map<String, String>> checksums)
+            throws IOException {
+        Map<String, Map<String, String>> serverChecksums = client.getChecksums(repository, directory, checksums.keySet());
+        for (Map.Entry<String, Map<String, String>> entry : checksums.entrySet()) {
+            String artifactUrl = client.getArtifactUrl(repository,
+                    StringUtils.isEmpty(directory) ? entry.getKey() : directory + "/" + entry.getKey());
+            Map<String, String> serverFileChecksums = serverChecksums.get(entry.getKey());
+            if (serverFileChecksums == null) {
+                throw new IOException("Failed to deploy file: " + artifactUrl +
+                        ". The file is missing from the extracted archive.");
+            }
+            for (String algorithm : Arrays.asList(ChecksumCalculator.SHA1, ChecksumCalculator.MD5)) {
+                String expected = entry.getValue().get(algorithm);
+                String actual = serverFileChecksums.get(algorithm);
+                if (!expected.equalsIgnoreCase(actual)) {
+                    throw new IOException(algorithm + " mismatch at '" + artifactUrl +
+                            "' expected: " + expected + ", got " + actual + ". Make sure that the file was not modified " +
+                            "during the deployment.");
+                }
+            }
+        }
+    }
+
+    private static String getDirectory(String artifactPath) {
+        String path = StringUtils.removeStart(artifactPath, "/");
+        return path.contains("/") ? StringUtils.substringBeforeLast(path, "/") : "";
+    }
+}
@@ -1,8 +1,9 @@
 package org.jfrog.hudson.generic;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import hudson.FilePath;
+import hudson.Util;
 import hudson.remoting.VirtualChannel;
 import jenkins.MasterToSlaveFileCallable;
 import org.apache.commons.io.IOUtils;
@@ -14,14 +15,29 @@ import org.jfrog.build.api.util.Log;
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryDependenciesClient;
 import org.jfrog.build.extractor.clientConfiguration.util.DependenciesDownloader;
 import org.jfrog.build.extractor.clientConfiguration.util.DependenciesDownloaderHelper;
+import org.jfrog.hudson.util.ChecksumCache;
+import org.jfrog.hudson.util.ChecksumCalculator;
+import org.jfrog.hudson.util.DownloadCache;
+import org.jfrog.hudson.util.FailFastExecutor;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Primary implementation of dependencies downloader,
@@ -35,6 +51,19 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
     private FilePath workspace;
     private Log log;
     private boolean flatDownload = false;
+    private String checksumCachePath;
+    private String downloadCachePath;
+    private long downloadCacheMaxSize;
+    // Open while downloading, and shared by the downloaders of concurrently downloaded partitions
+    private DownloadCache.Session downloadCache;
+    // The local files verified before downloading, also shared by the downloaders of partitions
+    private Map<String, Map<String, String>> localChecksums;
+    private static final String THREAD_NAME_FORMAT = "artifactory-downloader-%d";
+    private static final String VERIFIER_THREAD_NAME_FORMAT = "artifactory-file-verifier-%d";
+    private int threads = 1;
+    private ClientFactory clientFactory;
+    // Set on the downloaders of concurrently downloaded partitions, which must not delete each other's files
+    private DeferredRemoval deferredRemoval;
 
     public DependenciesDownloaderImpl(ArtifactoryDependenciesClient client, FilePath workspace, Log log) {
         this.client = client;
@@ -42,13 +71,209 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
         this.log = log;
     }
 
+    /**
+     * @param checksumCachePath The checksum cache of the workspace's node, used to avoid rehashing unchanged files
+     *                          when checking whether they were already downloaded.
+     */
+    public void setChecksumCachePath(String checksumCachePath) {
+        this.checksumCachePath = checksumCachePath;
+    }
+
+    /**
+     * @param downloadCachePath The download cache of the workspace's node. Artifacts which were already downloaded
+     *                          to the node are copied from the cache instead of being downloaded again.
+     * @param maxSize           The bound of the cache size in bytes.
+     */
+    public void setDownloadCache(String downloadCachePath, long maxSize) {
+        this.downloadCachePath = downloadCachePath;
+        this.downloadCacheMaxSize = maxSize;
+    }
+
+    /**
+     * Downloads the artifacts concurrently. The artifacts are split into a partition per thread, and each partition
+     * is downloaded with its own client. Artifacts downloaded to the same file are always in the same partition,
+     * so the writes of a file are never concurrent.
+     *
+     * @param clientFactory Creates the client of each partition.
+     */
+    public void setThreads(int threads, ClientFactory clientFactory) {
+        this.threads = Math.max(1, threads);
+        this.clientFactory = clientFactory;
+    }
+
     public ArtifactoryDependenciesClient getClient() {
         return client;
     }
 
     public List<Dependency> download(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
-        DependenciesDownloaderHelper helper = new DependenciesDownloaderHelper(this, log);
-        return helper.downloadDependencies(downloadableArtifacts);
+        localChecksums = verifyLocalFiles(downloadableArtifacts);
+        try {
+            if (downloadCachePath == null) {
+                return downloadArtifacts(downloadableArtifacts);
+            }
+            try (DownloadCache.Session session = DownloadCache.getInstance(downloadCachePath, checksumCachePath).openSession(log, downloadCacheMaxSize)) {
+                downloadCache = session;
+                return downloadArtifacts(downloadableArtifacts);
+            } finally {
+                downloadCache = null;
+            }
+        } finally {
+            localChecksums = null;
+        }
+    }
+
+    /**
+     * Verifies all the local files which the artifacts are going to be downloaded to, before the download starts.
+     * Runs where the workspace is, since the resolution runs on the workspace's node. The existing files are hashed
+     * concurrently, using the node's checksum cache, so the download threads don't wait for the hashing.
+     *
+     * @return A map from each verified path to the checksums of its file, or to an empty map if the file doesn't
+     * exist. Directories and files which failed to be hashed are left out, and are verified again when their
+     * artifacts are downloaded. Null if the workspace is remote.
+     */
+    private Map<String, Map<String, String>> verifyLocalFiles(Set<DownloadableArtifact> downloadableArtifacts)
+            throws IOException {
+        if (workspace.isRemote()) {
+            return null;
+        }
+        final Map<String, Map<String, String>> result = new ConcurrentHashMap<String, Map<String, String>>();
+        List<File> existingFiles = Lists.newArrayList();
+        for (DownloadableArtifact artifact : downloadableArtifacts) {
+            String targetPath = getTargetDir(artifact.getTargetDirPath(), artifact.getRelativeDirPath());
+            if (targetPath == null) {
+                continue;
+            }
+            File file = new File(workspace.child(targetPath).getRemote());
+            if (!file.exists()) {
+                result.put(file.getPath(), Collections.<String, String>emptyMap());
+            } else if (file.isFile()) {
+                existingFiles.add(file);
+            }
+        }
+        if (existingFiles.isEmpty()) {
+            return result;
+        }
+
+        try (final ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, log)) {
+            new FailFastExecutor<File, Void, Void>(threads, VERIFIER_THREAD_NAME_FORMAT) {
+                @Override
+                protected Void createWorker() {
+                    return null;
+                }
+
+                @Override
+                protected Void process(Void worker, File file) {
+                    try {
+                        Map<String, String> checksums = checksumCache.getChecksums(file);
+                        Map<String, String> fileChecksums = new HashMap<String, String>();
+                        fileChecksums.put("md5", checksums.get(ChecksumCalculator.MD5));
+                        fileChecksums.put("sha1", checksums.get(ChecksumCalculator.SHA1));
+                        result.put(file.getPath(), fileChecksums);
+                    } catch (IOException e) {
+                        // Doesn't stop the verification of the other files
+                        log.debug("Failed verifying local file " + file + ": " + e.getMessage());
+                    }
+                    return null;
+                }
+            }.execute(existingFiles);
+            checksumCache.logSummary();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while verifying local files");
+        }
+        return result;
+    }
+
+    private List<Dependency> downloadArtifacts(Set<DownloadableArtifact> downloadableArtifacts) throws IOException {
+        int poolSize = Math.min(threads, downloadableArtifacts.size());
+        if (poolSize <= 1 || clientFactory == null) {
+            DependenciesDownloaderHelper helper = new DependenciesDownloaderHelper(this, log);
+            return helper.downloadDependencies(downloadableArtifacts);
+        }
+        return downloadConcurrently(downloadableArtifacts, poolSize);
+    }
+
+    private List<Dependency> downloadConcurrently(Set<DownloadableArtifact> downloadableArtifacts, int poolSize)
+            throws IOException {
+        List<List<DownloadableArtifact>> partitions = createPartitions(downloadableArtifacts, poolSize);
+        final DeferredRemoval removal = new DeferredRemoval();
+        FailFastExecutor<List<DownloadableArtifact>, List<Dependency>, ArtifactoryDependenciesClient> executor =
+                new FailFastExecutor<List<DownloadableArtifact>, List<Dependency>, ArtifactoryDependenciesClient>(partitions.size(), THREAD_NAME_FORMAT) {
+                    @Override
+                    protected ArtifactoryDependenciesClient createWorker() {
+                        return clientFactory.createClient();
+                    }
+
+                    @Override
+                    protected List<Dependency> process(ArtifactoryDependenciesClient partitionClient,
+                                                       List<DownloadableArtifact> partition) throws IOException {
+                        DependenciesDownloaderImpl partitionDownloader =
+                                new DependenciesDownloaderImpl(partitionClient, workspace, log);
+                        partitionDownloader.flatDownload = flatDownload;
+                        partitionDownloader.checksumCachePath = checksumCachePath;
+                        partitionDownloader.downloadCache = downloadCache;
+                        partitionDownloader.localChecksums = localChecksums;
+                        partitionDownloader.deferredRemoval = removal;
+                        return new DependenciesDownloaderHelper(partitionDownloader, log)
+                                .downloadDependencies(Sets.newLinkedHashSet(partition));
+                    }
+
+                    @Override
+                    protected void closeWorker(ArtifactoryDependenciesClient partitionClient) {
+                        partitionClient.close();
+                    }
+                };
+        // Fail as the sequential download does, with the exception of the first failed download
+        executor.setRethrowFirstFailure(true);
+        try {
+            List<Dependency> dependencies = Lists.newArrayList();
+            for (List<Dependency> partitionDependencies : executor.execute(partitions)) {
+                dependencies.addAll(partitionDependencies);
+            }
+            // The files of all the partitions are known only now
+            if (!removal.forDeletionFiles.isEmpty()) {
+                removeUnusedArtifactsFromLocal(removal.allResolvedFiles, removal.forDeletionFiles);
+            }
+            return dependencies;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading artifacts");
+        }
+    }
+
+    /**
+     * Splits the artifacts into partitions of similar sizes, keeping the artifacts of each target file together.
+     * With a flat download, artifacts from different paths with the same name are downloaded to the same file.
+     */
+    private List<List<DownloadableArtifact>> createPartitions(Set<DownloadableArtifact> downloadableArtifacts, int poolSize) {
+        Map<String, List<DownloadableArtifact>> targetFiles = new LinkedHashMap<String, List<DownloadableArtifact>>();
+        for (DownloadableArtifact artifact : downloadableArtifacts) {
+            String relativeDir = artifact.getRelativeDirPath();
+            String downloadFileRelativePath = flatDownload && relativeDir.contains("/") ?
+                    StringUtils.substringAfterLast(relativeDir, "/") : relativeDir;
+            String targetFile = new FilePath(workspace, artifact.getTargetDirPath()).child(downloadFileRelativePath).getRemote();
+            List<DownloadableArtifact> artifacts = targetFiles.get(targetFile);
+            if (artifacts == null) {
+                artifacts = Lists.newArrayList();
+                targetFiles.put(targetFile, artifacts);
+            }
+            artifacts.add(artifact);
+        }
+
+        List<List<DownloadableArtifact>> partitions = Lists.newArrayList();
+        int partitionSize = (downloadableArtifacts.size() + poolSize - 1) / poolSize;
+        List<DownloadableArtifact> partition = Lists.newArrayList();
+        for (List<DownloadableArtifact> artifacts : targetFiles.values()) {
+            partition.addAll(artifacts);
+            if (partition.size() >= partitionSize) {
+                partitions.add(partition);
+                partition = Lists.newArrayList();
+            }
+        }
+        if (!partition.isEmpty()) {
+            partitions.add(partition);
+        }
+        return partitions;
     }
 
     public String getTargetDir(String targetDir, String relativeDir) throws IOException {
@@ -67,6 +292,14 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
     public Map<String, String> saveDownloadedFile(InputStream is, String filePath) throws IOException {
         try {
             FilePath child = workspace.child(filePath);
+            if (!child.isRemote()) {
+                File file = new File(child.getRemote());
+                Map<String, String> checksums = saveLocalFile(is, file);
+                if (downloadCache != null) {
+                    downloadCache.add(checksums.get("sha1"), file);
+                }
+                return checksums;
+            }
             child.copyFrom(is);
             return child.act(new DownloadFileCallable(log));
         } catch (InterruptedException e) {
@@ -81,15 +314,22 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
     public boolean isFileExistsLocally(String filePath, String md5, String sha1) throws IOException {
         try {
             FilePath child = workspace.child(filePath);
-            if (!child.exists()) {
-                return false;
-            }
+            Map<String, String> checksumsMap = localChecksums != null ? localChecksums.remove(child.getRemote()) : null;
+            if (checksumsMap == null) {
+                // The file wasn't verified in advance
+                if (!child.exists()) {
+                    return materializeFromCache(child, sha1);
+                }
 
-            if (child.isDirectory()) {
-                return false;
+                if (child.isDirectory()) {
+                    return false;
+                }
+
+                checksumsMap = child.act(new DownloadFileCallable(log, checksumCachePath));
+            } else if (checksumsMap.isEmpty()) {
+                return materializeFromCache(child, sha1);
             }
 
-            Map<String, String> checksumsMap = child.act(new DownloadFileCallable(log));
             boolean isExists =  checksumsMap != null &&
                     StringUtils.isNotBlank(md5) && StringUtils.equals(md5, checksumsMap.get("md5")) &&
                     StringUtils.isNotBlank(sha1) && StringUtils.equals(sha1, checksumsMap.get("sha1"));
@@ -97,7 +337,7 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
                 return true;
             } else {
                 log.info(String.format("Overriding existing in destination file: %s", child));
-                return false;
+                return materializeFromCache(child, sha1);
             }
         } catch (InterruptedException e) {
             log.warn("Caught interrupted exception: " + e.getLocalizedMessage());
@@ -108,51 +348,151 @@ public class DependenciesDownloaderImpl implements DependenciesDownloader {
 
     public void removeUnusedArtifactsFromLocal(Set<String> allResolvesFiles, Set<String> forDeletionFiles)
             throws IOException {
+        if (deferredRemoval != null) {
+            deferredRemoval.allResolvedFiles.addAll(allResolvesFiles);
+            deferredRemoval.forDeletionFiles.addAll(forDeletionFiles);
+            return;
+        }
         try {
+            workspace.act(new RemoveUnusedFilesCallable(allResolvesFiles, forDeletionFiles, log));
+        } catch (InterruptedException e) {
+            log.warn("Caught interrupted exception: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Takes the artifact from the node's download cache instead of downloading it.
+     *
+     * @return true if the artifact was cached.
+     */
+    private boolean materializeFromCache(FilePath file, String sha1) throws IOException {
+        if (downloadCache == null || file.isRemote() || StringUtils.isBlank(sha1)) {
+            return false;
+        }
+        if (downloadCache.materialize(sha1, new File(file.getRemote()))) {
+            log.debug("Taken from the node's download cache: " + file);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the downloaded content to a local file and calculates its checksums in the same pass.
+     */
+    private Map<String, String> saveLocalFile(InputStream is, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        Map<String, String> checksums;
+        try (OutputStream out = new FileOutputStream(file)) {
+            checksums = ChecksumCalculator.copyAndCalculateChecksums(is, out, ChecksumCalculator.MD5, ChecksumCalculator.SHA1);
+        }
+        // Revalidating the file on the next build compares these checksums instead of hashing it again
+        try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, log)) {
+            checksumCache.record(file, checksums);
+        }
+        Map<String, String> result = new HashMap<String, String>();
+        result.put("md5", checksums.get(ChecksumCalculator.MD5));
+        result.put("sha1", checksums.get(ChecksumCalculator.SHA1));
+        return result;
+    }
+
+    public void setFlatDownload(boolean flat){
+        this.flatDownload = flat;
+    }
+
+    /**
+     * Creates the clients of concurrently downloaded partitions.
+     */
+    public interface ClientFactory {
+        ArtifactoryDependenciesClient createClient();
+    }
+
+    private static class DeferredRemoval {
+        private final Set<String> allResolvedFiles = Collections.synchronizedSet(new HashSet<String>());
+        private final Set<String> forDeletionFiles = Collections.synchronizedSet(new HashSet<String>());
+    }
+
+    /**
+     * Deletes the files which were not resolved from the directories of the resolved files, in a single call.
+     * The resolved files are indexed in a sorted set, so checking whether a file is resolved, or is a parent of
+     * a resolved file, is a single lookup rather than a scan of all the resolved files.
+     */
+    private static class RemoveUnusedFilesCallable extends MasterToSlaveFileCallable<Void> {
+        private final TreeSet<String> resolvedFiles;
+        private final Set<String> forDeletionFiles;
+        private final Log log;
+
+        RemoveUnusedFilesCallable(Set<String> resolvedFiles, Set<String> forDeletionFiles, Log log) {
+            synchronized (resolvedFiles) {
+                this.resolvedFiles = new TreeSet<String>(resolvedFiles);
+            }
+            synchronized (forDeletionFiles) {
+                this.forDeletionFiles = new HashSet<String>(forDeletionFiles);
+            }
+            this.log = log;
+        }
+
+        public Void invoke(File workspace, VirtualChannel channel) throws IOException {
+            // Each directory is cleaned once, however many of its files were resolved
+            Set<File> parents = new LinkedHashSet<File>();
             for (String resolvedFile : forDeletionFiles) {
-                FilePath resolvedFileParent = workspace.child(resolvedFile).getParent();
-                if (!resolvedFileParent.exists()) {
-                    continue;
+                File file = new File(resolvedFile);
+                File parent = (file.isAbsolute() ? file : new File(workspace, resolvedFile)).getParentFile();
+                if (parent != null) {
+                    parents.add(parent);
                 }
+            }
 
-                List<FilePath> fileSiblings = resolvedFileParent.list();
-                if (fileSiblings == null || fileSiblings.isEmpty()) {
+            for (File parent : parents) {
+                File[] fileSiblings = parent.listFiles();
+                if (fileSiblings == null) {
                     continue;
                 }
-
-                for (FilePath sibling : fileSiblings) {
-                    String siblingPath = sibling.absolutize().getRemote();
-                    if (!isResolvedOrParentOfResolvedFile(allResolvesFiles, siblingPath)) {
-                        sibling.deleteRecursive();
+                for (File sibling : fileSiblings) {
+                    String siblingPath = sibling.getAbsolutePath();
+                    if (!isResolvedOrParentOfResolvedFile(resolvedFiles, siblingPath)) {
+                        Util.deleteRecursive(sibling);
                         log.info("Deleted unresolved file '" + siblingPath + "'");
                     }
                 }
             }
-        } catch (InterruptedException e) {
-            log.warn("Caught interrupted exception: " + e.getLocalizedMessage());
+            return null;
         }
-    }
 
-    public void setFlatDownload(boolean flat){
-        this.flatDownload = flat;
-    }
-
-    private boolean isResolvedOrParentOfResolvedFile(Set<String> resolvedFiles, final String path) {
-        return Iterables.any(resolvedFiles, new Predicate<String>() {
-            public boolean apply(String filePath) {
-                return StringUtils.equals(filePath, path) || StringUtils.startsWith(filePath, path);
-            }
-        });
+        /**
+         * The resolved files which start with the path, if any, are sorted right after it.
+         */
+        static boolean isResolvedOrParentOfResolvedFile(NavigableSet<String> resolvedFiles, String path) {
+            String ceiling = resolvedFiles.ceiling(path);
+            return ceiling != null && ceiling.startsWith(path);
+        }
     }
 
     private static class DownloadFileCallable extends MasterToSlaveFileCallable<Map<String, String>> {
         private Log log;
+        private String checksumCachePath;
 
         public DownloadFileCallable(Log log) {
             this.log = log;
         }
 
+        public DownloadFileCallable(Log log, String checksumCachePath) {
+            this.log = log;
+            this.checksumCachePath = checksumCachePath;
+        }
+
         public Map<String, String> invoke(File f, VirtualChannel channel) throws IOException {
+            if (checksumCachePath != null) {
+                try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, log)) {
+                    Map<String, String> checksums = checksumCache.getChecksums(f);
+                    Map<String, String> result = new HashMap<String, String>();
+                    result.put("md5", checksums.get(ChecksumCalculator.MD5));
+                    result.put("sha1", checksums.get(ChecksumCalculator.SHA1));
+                    return result;
+                }
+            }
             try {
                 return FileChecksumCalculator.calculateChecksums(f, "md5", "sha1");
             } catch (NoSuchAlgorithmException e) {
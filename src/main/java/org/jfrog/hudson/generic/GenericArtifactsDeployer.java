@@ -16,11 +16,9 @@ import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.Artifact;
 import org.jfrog.build.api.BuildInfoFields;
 import org.jfrog.build.api.builder.ArtifactBuilder;
-import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.api.util.Log;
 import org.jfrog.build.client.ProxyConfiguration;
 import org.jfrog.build.extractor.clientConfiguration.ArtifactoryBuildInfoClientBuilder;
-import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient;
 import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
 import org.jfrog.build.extractor.clientConfiguration.util.PublishedItemsHelper;
 import org.jfrog.build.extractor.clientConfiguration.util.spec.SpecsHelper;
@@ -33,6 +31,7 @@ import org.jfrog.hudson.util.*;
 import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -89,7 +88,10 @@ public class GenericArtifactsDeployer {
             String repositoryKey = Util.replaceMacro(configurator.getRepositoryKey(), env);
             artifactsToDeploy = workingDir.act(new FilesDeployerCallable(listener, pairs, artifactoryServer,
                     credentialsConfig.getCredentials(build.getParent()), repositoryKey, propertiesToAdd,
-                    ArtifactoryServer.createProxyConfiguration(Jenkins.getInstance().proxy)));
+                    ArtifactoryServer.createProxyConfiguration(Jenkins.getInstance().proxy),
+                    artifactoryServer.getDeploymentThreads(configurator.getDeploymentThreads()))
+                    .setChecksumCachePath(ChecksumCache.getCachePath(workingDir))
+                    .setBundleSmallFiles(configurator.isBundleSmallFiles()));
         }
     }
 
@@ -125,6 +127,9 @@ public class GenericArtifactsDeployer {
         private PatternType patternType = PatternType.ANT;
         private String spec;
         private Set<DeployDetails> deployableArtifacts;
+        private int threads = 1;
+        private String checksumCachePath;
+        private boolean bundleSmallFiles;
 
         public enum PatternType {
             ANT, WILDCARD
@@ -132,7 +137,8 @@ public class GenericArtifactsDeployer {
 
         public FilesDeployerCallable(TaskListener listener, Multimap<String, String> patternPairs,
                                      ArtifactoryServer server, Credentials credentials, String repositoryKey,
-                                     ArrayListMultimap<String, String> buildProperties, ProxyConfiguration proxyConfiguration) {
+                                     ArrayListMultimap<String, String> buildProperties, ProxyConfiguration proxyConfiguration,
+                                     int threads) {
             this.listener = listener;
             this.patternPairs = patternPairs;
             this.server = server;
@@ -140,6 +146,7 @@ public class GenericArtifactsDeployer {
             this.repositoryKey = repositoryKey;
             this.buildProperties = buildProperties;
             this.proxyConfiguration = proxyConfiguration;
+            this.threads = threads;
         }
 
         public FilesDeployerCallable(TaskListener listener, String spec,
@@ -155,24 +162,41 @@ public class GenericArtifactsDeployer {
 
         public FilesDeployerCallable(TaskListener listener, Set<DeployDetails> deployableArtifacts,
                                      ArtifactoryServer server, Credentials credentials,
-                                     ProxyConfiguration proxyConfiguration) {
+                                     ProxyConfiguration proxyConfiguration, int threads) {
             this.listener = listener;
             this.deployableArtifacts = deployableArtifacts;
             this.server = server;
             this.credentials = credentials;
             this.proxyConfiguration = proxyConfiguration;
+            this.threads = threads;
+        }
+
+        /**
+         * @param checksumCachePath The agent's checksum cache, used to avoid rehashing unchanged files.
+         *                          If null, the checksums are always calculated.
+         */
+        public FilesDeployerCallable setChecksumCachePath(String checksumCachePath) {
+            this.checksumCachePath = checksumCachePath;
+            return this;
+        }
+
+        /**
+         * @param bundleSmallFiles If true, small files which are deployed to the same directory are deployed together
+         *                         as an archive which Artifactory extracts.
+         */
+        public FilesDeployerCallable setBundleSmallFiles(boolean bundleSmallFiles) {
+            this.bundleSmallFiles = bundleSmallFiles;
+            return this;
         }
 
         public List<Artifact> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
             Set<DeployDetails> artifactsToDeploy;
             Log log = new JenkinsBuildInfoLog(listener);
 
-            // Create ArtifactoryClientBuilder
-            ArtifactoryBuildInfoClientBuilder clientBuilder = server.createArtifactoryClientBuilder(credentials.getUsername(),
-                    credentials.getPassword(), proxyConfiguration, log);
-
             if (StringUtils.isNotEmpty(spec)) {
                 // Option 1. Upload - Use file specs.
+                ArtifactoryBuildInfoClientBuilder clientBuilder = server.createArtifactoryClientBuilder(credentials.getUsername(),
+                        credentials.getPassword(), proxyConfiguration, log);
                 SpecsHelper specsHelper = new SpecsHelper(log);
                 try {
                     return specsHelper.uploadArtifactsBySpec(spec, workspace, buildProperties, clientBuilder);
@@ -182,25 +206,26 @@ public class GenericArtifactsDeployer {
                     throw new RuntimeException("Failed uploading artifacts by spec", e);
                 }
             } else {
-                if (deployableArtifacts != null) {
-                    // Option 2. Pipeline deploy - There is already a deployable artifacts set.
-                    artifactsToDeploy = deployableArtifacts;
-                } else {
-                    // Option 3. Generic deploy - Fetch the artifacts details from workspace by using 'patternPairs'.
-                    artifactsToDeploy = Sets.newHashSet();
-                    Multimap<String, File> targetPathToFilesMap = buildTargetPathToFiles(workspace);
-                    for (Map.Entry<String, File> entry : targetPathToFilesMap.entries()) {
-                        artifactsToDeploy.addAll(buildDeployDetailsFromFileEntry(entry));
+                try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, log)) {
+                    if (deployableArtifacts != null) {
+                        // Option 2. Pipeline deploy - There is already a deployable artifacts set.
+                        artifactsToDeploy = deployableArtifacts;
+                    } else {
+                        // Option 3. Generic deploy - Fetch the artifacts details from workspace by using 'patternPairs'.
+                        artifactsToDeploy = Sets.newHashSet();
+                        Multimap<String, File> targetPathToFilesMap = buildTargetPathToFiles(workspace);
+                        for (Map.Entry<String, File> entry : targetPathToFilesMap.entries()) {
+                            artifactsToDeploy.addAll(buildDeployDetailsFromFileEntry(entry, checksumCache));
+                        }
+                        checksumCache.logSummary();
                     }
-                }
-                try (ArtifactoryBuildInfoClient client = clientBuilder.build()) {
-                    deploy(client, artifactsToDeploy);
-                    return convertDeployDetailsToArtifacts(artifactsToDeploy);
+                    List<DeployDetails> deployedArtifacts = deploy(artifactsToDeploy, checksumCache, log);
+                    return convertDeployDetailsToArtifacts(deployedArtifacts);
                 }
             }
         }
 
-        private List<Artifact> convertDeployDetailsToArtifacts(Set<DeployDetails> details) {
+        private List<Artifact> convertDeployDetailsToArtifacts(Collection<DeployDetails> details) {
             List<Artifact> result = Lists.newArrayList();
             for (DeployDetails detail : details) {
                 String ext = FilenameUtils.getExtension(detail.getFile().getName());
@@ -211,34 +236,32 @@ public class GenericArtifactsDeployer {
             return result;
         }
 
-        public void deploy(ArtifactoryBuildInfoClient client, Set<DeployDetails> artifactsToDeploy)
-                throws IOException {
-            for (DeployDetails deployDetail : artifactsToDeploy) {
-                StringBuilder deploymentPathBuilder = new StringBuilder(server.getUrl());
-                deploymentPathBuilder.append("/").append(deployDetail.getTargetRepository());
-                if (!deployDetail.getArtifactPath().startsWith("/")) {
-                    deploymentPathBuilder.append("/");
-                }
-                deploymentPathBuilder.append(deployDetail.getArtifactPath());
-                client.deployArtifact(deployDetail);
+        /**
+         * @param checksumCache Records the checksums which are calculated while the files are uploaded.
+         */
+        public List<DeployDetails> deploy(Set<DeployDetails> artifactsToDeploy, ChecksumCache.Session checksumCache,
+                                          Log log) throws IOException, InterruptedException {
+            // Files which were already deployed, for example by a failed run of this step, are deployed by checksum,
+            // so their content is not uploaded again.
+            ParallelArtifactsDeployer deployer = new ParallelArtifactsDeployer(server, credentials, proxyConfiguration, threads, log)
+                    .setChecksumCache(checksumCache);
+            if (bundleSmallFiles) {
+                deployer.setBundledArtifactsDeployer(new BundledArtifactsDeployer(log));
             }
+            return deployer.deploy(artifactsToDeploy);
         }
 
-        private Multimap<String, File> buildTargetPathToFiles(File workspace) throws IOException {
-            Multimap<String, File> result = HashMultimap.create();
+        private Multimap<String, File> buildTargetPathToFiles(File workspace) throws IOException, InterruptedException {
             if (patternPairs == null) {
-                return result;
+                return HashMultimap.create();
             }
-            for (Map.Entry<String, String> entry : patternPairs.entries()) {
-                String pattern = entry.getKey();
-                String targetPath = entry.getValue();
-                Multimap<String, File> publishingData =
-                    PublishedItemsHelper.buildPublishingData(workspace, pattern, targetPath);
-
-                if (publishingData != null) {
-                listener.getLogger().println(
-                            "For pattern: " + pattern + " " + publishingData.size() + " artifacts were found");
-                    result.putAll(publishingData);
+            // Walk the workspace once for all the patterns. The walk is parallelized along with the deployment.
+            MultiPatternFileScanner scanner = new MultiPatternFileScanner(workspace, patternPairs);
+            Multimap<String, File> result = scanner.scan(threads > 1);
+            for (String pattern : patternPairs.keySet()) {
+                int matchesCount = scanner.getMatchesCount(pattern);
+                if (matchesCount > 0) {
+                    listener.getLogger().println("For pattern: " + pattern + " " + matchesCount + " artifacts were found");
                 } else {
                     listener.getLogger().println("For pattern: " + pattern + " no artifacts were found");
                 }
@@ -247,8 +270,8 @@ public class GenericArtifactsDeployer {
             return result;
         }
 
-        private Set<DeployDetails> buildDeployDetailsFromFileEntry(Map.Entry<String, File> fileEntry)
-                throws IOException {
+        private Set<DeployDetails> buildDeployDetailsFromFileEntry(Map.Entry<String, File> fileEntry,
+                                                                   ChecksumCache.Session checksumCache) throws IOException {
             Set<DeployDetails> result = Sets.newHashSet();
             String targetPath = fileEntry.getKey();
             File artifactFile = fileEntry.getValue();
@@ -260,19 +283,17 @@ public class GenericArtifactsDeployer {
             }
             path = StringUtils.replace(path, "//", "/");
 
-            // calculate the sha1 checksum that is not given by Jenkins and add it to the deploy artifactsToDeploy
-            Map<String, String> checksums = Maps.newHashMap();
-            try {
-                checksums = FileChecksumCalculator.calculateChecksums(artifactFile, SHA1, MD5);
-            } catch (NoSuchAlgorithmException e) {
-                listener.getLogger().println("Could not find checksum algorithm for " + SHA1 + " or " + MD5);
-            }
             DeployDetails.Builder builder = new DeployDetails.Builder()
                     .file(artifactFile)
                     .artifactPath(path)
                     .targetRepository(repositoryKey)
-                    .md5(checksums.get(MD5)).sha1(checksums.get(SHA1))
                     .addProperties(buildProperties);
+            // Files with cached checksums are deployed by checksum. The checksums of the other files are calculated
+            // while they are uploaded, so that each file is read once.
+            Map<String, String> checksums = checksumCache.getCachedChecksums(artifactFile);
+            if (checksums != null) {
+                builder.md5(checksums.get(MD5)).sha1(checksums.get(SHA1));
+            }
             result.add(builder.build());
 
             return result;
@@ -17,52 +17,152 @@
 package org.jfrog.hudson.generic;
 
 import hudson.EnvVars;
+import hudson.FilePath;
 import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
 import org.jfrog.build.api.Dependency;
 import org.jfrog.build.api.dependency.BuildDependency;
 import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ProxyConfiguration;
 import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryDependenciesClient;
 import org.jfrog.build.extractor.clientConfiguration.util.AntPatternsDependenciesHelper;
 import org.jfrog.build.extractor.clientConfiguration.util.BuildDependenciesHelper;
-import org.jfrog.build.extractor.clientConfiguration.util.DependenciesDownloader;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.util.ChecksumCache;
+import org.jfrog.hudson.util.DownloadCache;
 import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * Resolves artifacts from Artifactory (published dependencies and build dependencies)
  * This class is used only in free style generic configurator.
+ * The resolution runs on the agent of the build's workspace, so the downloaded files don't pass through the master.
  *
  * @author Shay Yaakov
  */
 public class GenericArtifactsResolver {
     private final AbstractBuild build;
-    private final ArtifactoryDependenciesClient client;
-    private Log log;
+    private final BuildListener listener;
+    private final ArtifactoryServer server;
+    private final String username;
+    private final String password;
+    private final ProxyConfiguration proxyConfiguration;
+    private final int threads;
+    private final long downloadCacheMaxSize;
     private EnvVars envVars;
 
-    public GenericArtifactsResolver(AbstractBuild build, BuildListener listener, ArtifactoryDependenciesClient client)
+    /**
+     * @param downloadCacheMaxSize The bound in bytes of the node's download cache, or 0 to download without the cache.
+     */
+    public GenericArtifactsResolver(AbstractBuild build, BuildListener listener, ArtifactoryServer server,
+                                    String username, String password, ProxyConfiguration proxyConfiguration, int threads,
+                                    long downloadCacheMaxSize)
             throws IOException, InterruptedException {
         this.build = build;
-        this.client = client;
+        this.listener = listener;
+        this.server = server;
+        this.username = username;
+        this.password = password;
+        this.proxyConfiguration = proxyConfiguration;
+        this.threads = threads;
+        this.downloadCacheMaxSize = downloadCacheMaxSize;
         this.envVars = build.getEnvironment(listener);
-        this.log = new JenkinsBuildInfoLog(listener);
     }
 
-    public List<Dependency> retrievePublishedDependencies(String resolvePattern) throws IOException, InterruptedException {
-        AntPatternsDependenciesHelper helper = new AntPatternsDependenciesHelper(createDependenciesDownloader(), log);
-        return helper.retrievePublishedDependencies(Util.replaceMacro(resolvePattern, envVars));
+    /**
+     * Retrieves both the published dependencies and the build dependencies of the resolve pattern.
+     */
+    public ResolvedDependencies retrieveDependencies(String resolvePattern) throws IOException, InterruptedException {
+        FilePath workspace = build.getWorkspace();
+        if (workspace == null) {
+            throw new IOException("Cannot resolve dependencies: the build has no workspace");
+        }
+        String downloadCachePath = downloadCacheMaxSize > 0 ? DownloadCache.getCachePath(workspace) : null;
+        return workspace.act(new DependenciesResolverCallable(listener, server, username, password, proxyConfiguration,
+                Util.replaceMacro(resolvePattern, envVars), ChecksumCache.getCachePath(workspace), downloadCachePath,
+                downloadCacheMaxSize, threads));
     }
 
-    public List<BuildDependency> retrieveBuildDependencies(String resolvePattern) throws IOException, InterruptedException {
-        BuildDependenciesHelper helper = new BuildDependenciesHelper(createDependenciesDownloader(), log);
-        return helper.retrieveBuildDependencies(Util.replaceMacro(resolvePattern, envVars));
+    public static class ResolvedDependencies implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Dependency> publishedDependencies;
+        private final List<BuildDependency> buildDependencies;
+
+        ResolvedDependencies(List<Dependency> publishedDependencies, List<BuildDependency> buildDependencies) {
+            this.publishedDependencies = publishedDependencies;
+            this.buildDependencies = buildDependencies;
+        }
+
+        public List<Dependency> getPublishedDependencies() {
+            return publishedDependencies;
+        }
+
+        public List<BuildDependency> getBuildDependencies() {
+            return buildDependencies;
+        }
     }
 
-    private DependenciesDownloader createDependenciesDownloader() {
-        return new DependenciesDownloaderImpl(client, build.getWorkspace(), log);
+    private static class DependenciesResolverCallable extends MasterToSlaveFileCallable<ResolvedDependencies> {
+        private final TaskListener listener;
+        private final ArtifactoryServer server;
+        private final String username;
+        private final String password;
+        private final ProxyConfiguration proxyConfiguration;
+        private final String resolvePattern;
+        private final String checksumCachePath;
+        private final String downloadCachePath;
+        private final long downloadCacheMaxSize;
+        private final int threads;
+
+        DependenciesResolverCallable(TaskListener listener, ArtifactoryServer server, String username, String password,
+                                     ProxyConfiguration proxyConfiguration, String resolvePattern, String checksumCachePath,
+                                     String downloadCachePath, long downloadCacheMaxSize, int threads) {
+            this.listener = listener;
+            this.server = server;
+            this.username = username;
+            this.password = password;
+            this.proxyConfiguration = proxyConfiguration;
+            this.resolvePattern = resolvePattern;
+            this.checksumCachePath = checksumCachePath;
+            this.downloadCachePath = downloadCachePath;
+            this.downloadCacheMaxSize = downloadCacheMaxSize;
+            this.threads = threads;
+        }
+
+        public ResolvedDependencies invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+            Log log = new JenkinsBuildInfoLog(listener);
+            ArtifactoryDependenciesClient client = createClient();
+            try {
+                DependenciesDownloaderImpl dependenciesDownloader = new DependenciesDownloaderImpl(client,
+                        new FilePath(workspace), log);
+                dependenciesDownloader.setChecksumCachePath(checksumCachePath);
+                dependenciesDownloader.setDownloadCache(downloadCachePath, downloadCacheMaxSize);
+                dependenciesDownloader.setThreads(threads, new DependenciesDownloaderImpl.ClientFactory() {
+                    public ArtifactoryDependenciesClient createClient() {
+                        return DependenciesResolverCallable.this.createClient();
+                    }
+                });
+                List<Dependency> publishedDependencies = new AntPatternsDependenciesHelper(dependenciesDownloader, log)
+                        .retrievePublishedDependencies(resolvePattern);
+                List<BuildDependency> buildDependencies = new BuildDependenciesHelper(dependenciesDownloader, log)
+                        .retrieveBuildDependencies(resolvePattern);
+                return new ResolvedDependencies(publishedDependencies, buildDependencies);
+            } finally {
+                client.close();
+            }
+        }
+
+        private ArtifactoryDependenciesClient createClient() {
+            return server.createArtifactoryDependenciesClient(username, password, proxyConfiguration, listener);
+        }
     }
 }
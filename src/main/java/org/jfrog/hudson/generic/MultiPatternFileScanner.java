@@ -0,0 +1,380 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the files matching a set of Ant patterns by walking the file system once for all the patterns,
+ * instead of once per pattern.
+ * Directories which cannot contain a match of any of the patterns are not visited.
+ * <p>
+ * Each matched file is mapped to the target path of its pattern, followed by the path of the file's directory
+ * relative to the pattern's base directory (the leading part of the pattern without wildcards).
+ * A pattern without wildcards matches the file it points to, or all the files under the directory it points to.
+ */
+public class MultiPatternFileScanner {
+    private static final String DOUBLE_STAR = "**";
+    private static final int WALKER_THREADS = Runtime.getRuntime().availableProcessors();
+    // Shared by all the scans of the node. The threads are stopped when idle.
+    private static final ThreadPoolExecutor walkers = createWalkers();
+
+    private final List<CompiledPattern> patterns = Lists.newArrayList();
+
+    /**
+     * @param workspace    The directory relative patterns are resolved against.
+     * @param patternPairs Map of Ant patterns to target paths.
+     */
+    public MultiPatternFileScanner(File workspace, Multimap<String, String> patternPairs) {
+        for (Map.Entry<String, String> entry : patternPairs.entries()) {
+            patterns.add(new CompiledPattern(workspace, entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * @param parallel If true, the top level directories of each walked tree are walked in parallel.
+     * @return Map of target paths to the matched files.
+     */
+    public Multimap<String, File> scan(boolean parallel) throws IOException, InterruptedException {
+        Multimap<String, File> result = HashMultimap.create();
+        List<CompiledPattern> walkedPatterns = Lists.newArrayList();
+        for (CompiledPattern pattern : patterns) {
+            pattern.matches.set(0);
+            if (pattern.isSingleFile()) {
+                result.put(pattern.targetPath, pattern.baseDir.toFile());
+                pattern.matches.incrementAndGet();
+            } else if (Files.isDirectory(pattern.baseDir)) {
+                walkedPatterns.add(pattern);
+            }
+        }
+
+        List<Path> roots = getWalkRoots(walkedPatterns);
+        if (!parallel) {
+            for (Path root : roots) {
+                new PatternsVisitor(walkedPatterns, root, result).walk(root);
+            }
+            return result;
+        }
+
+        List<Callable<Multimap<String, File>>> tasks = Lists.newArrayList();
+        for (Path root : roots) {
+            tasks.addAll(createParallelWalkTasks(walkedPatterns, root, result));
+        }
+        // Cancels the remaining tasks if interrupted
+        for (Future<Multimap<String, File>> future : walkers.invokeAll(tasks)) {
+            result.putAll(getResult(future));
+        }
+        return result;
+    }
+
+    private static ThreadPoolExecutor createWalkers() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WALKER_THREADS, WALKER_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("artifactory-file-scanner-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return The number of files matched by the pattern in the last scan.
+     */
+    public int getMatchesCount(String pattern) {
+        int count = 0;
+        for (CompiledPattern compiledPattern : patterns) {
+            if (compiledPattern.pattern.equals(pattern)) {
+                count += compiledPattern.matches.get();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a walk task for each top level directory of the root. The files directly under the root are collected
+     * into the given result.
+     */
+    private List<Callable<Multimap<String, File>>> createParallelWalkTasks(final List<CompiledPattern> walkedPatterns,
+                                                                       final Path root, Multimap<String, File> result)
+            throws IOException {
+        List<Callable<Multimap<String, File>>> tasks = Lists.newArrayList();
+        PatternsVisitor rootVisitor = new PatternsVisitor(walkedPatterns, root, result);
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+            for (final Path child : children) {
+                BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                if (!attributes.isDirectory()) {
+                    rootVisitor.visitFile(child, attributes);
+                    continue;
+                }
+                if (!rootVisitor.isPruned(child)) {
+                    tasks.add(new Callable<Multimap<String, File>>() {
+                        public Multimap<String, File> call() throws IOException {
+                            Multimap<String, File> taskResult = HashMultimap.create();
+                            new PatternsVisitor(walkedPatterns, root, taskResult).walk(child);
+                            return taskResult;
+                        }
+                    });
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private static Multimap<String, File> getResult(Future<Multimap<String, File>> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return The base directories of the patterns, excluding directories which are contained in another base
+     * directory, so that each directory is walked once.
+     */
+    private static List<Path> getWalkRoots(List<CompiledPattern> walkedPatterns) {
+        TreeSet<Path> baseDirs = new TreeSet<Path>();
+        for (CompiledPattern pattern : walkedPatterns) {
+            baseDirs.add(pattern.baseDir);
+        }
+        List<Path> roots = Lists.newArrayList();
+        for (Path baseDir : baseDirs) {
+            boolean nested = false;
+            for (Path root : roots) {
+                if (baseDir.startsWith(root)) {
+                    nested = true;
+                    break;
+                }
+            }
+            if (!nested) {
+                roots.add(baseDir);
+            }
+        }
+        return roots;
+    }
+
+    private static class PatternsVisitor extends SimpleFileVisitor<Path> {
+        private final List<CompiledPattern> walkedPatterns;
+        private final Path root;
+        private final Multimap<String, File> result;
+
+        PatternsVisitor(List<CompiledPattern> walkedPatterns, Path root, Multimap<String, File> result) {
+            this.walkedPatterns = walkedPatterns;
+            this.root = root;
+            this.result = result;
+        }
+
+        void walk(Path start) throws IOException {
+            Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, this);
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            return dir.equals(root) || !isPruned(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (attrs.isDirectory()) {
+                // A directory which could not be walked, such as a symbolic link loop
+                return FileVisitResult.CONTINUE;
+            }
+            for (CompiledPattern pattern : walkedPatterns) {
+                String targetPath = pattern.getTargetPath(file);
+                if (targetPath != null) {
+                    result.put(targetPath, file.toFile());
+                    pattern.matches.incrementAndGet();
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            // Unreadable files and directories are skipped, as in a regular Ant scan
+            return FileVisitResult.CONTINUE;
+        }
+
+        boolean isPruned(Path dir) {
+            for (CompiledPattern pattern : walkedPatterns) {
+                if (pattern.couldMatchUnder(dir)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class CompiledPattern {
+        private final String pattern;
+        private final String targetPath;
+        private final Path baseDir;
+        // The pattern segments after the base directory
+        private final String[] segments;
+        private final AtomicInteger matches = new AtomicInteger();
+
+        CompiledPattern(File workspace, String pattern, String targetPath) {
+            this.pattern = pattern;
+            this.targetPath = StringUtils.defaultString(targetPath);
+            String normalized = StringUtils.replace(pattern.trim(), "\\", "/");
+            if (normalized.endsWith("/")) {
+                normalized += DOUBLE_STAR;
+            }
+            String[] allSegments = StringUtils.split(normalized, "/");
+            int baseLength = 0;
+            while (baseLength < allSegments.length && !hasWildcards(allSegments[baseLength])) {
+                baseLength++;
+            }
+            String base = StringUtils.join(allSegments, "/", 0, baseLength);
+            if (normalized.startsWith("/")) {
+                base = "/" + base;
+            }
+            File baseFile = new File(base);
+            if (!baseFile.isAbsolute()) {
+                baseFile = new File(workspace, base);
+            }
+            this.baseDir = baseFile.toPath().toAbsolutePath().normalize();
+            String[] remaining = Arrays.copyOfRange(allSegments, baseLength, allSegments.length);
+            if (remaining.length == 0 && Files.isDirectory(baseDir)) {
+                // A directory path matches all the files under it
+                remaining = new String[]{DOUBLE_STAR};
+            }
+            this.segments = remaining;
+        }
+
+        boolean isSingleFile() {
+            return segments.length == 0 && Files.isRegularFile(baseDir);
+        }
+
+        /**
+         * @return true if files under the directory might match the pattern.
+         */
+        boolean couldMatchUnder(Path dir) {
+            if (baseDir.startsWith(dir)) {
+                return true;
+            }
+            if (!dir.startsWith(baseDir)) {
+                return false;
+            }
+            String[] dirSegments = toSegments(baseDir.relativize(dir));
+            int p = 0;
+            for (String dirSegment : dirSegments) {
+                if (p >= segments.length) {
+                    return false;
+                }
+                if (DOUBLE_STAR.equals(segments[p])) {
+                    return true;
+                }
+                if (!matchSegment(segments[p], dirSegment)) {
+                    return false;
+                }
+                p++;
+            }
+            return p < segments.length;
+        }
+
+        /**
+         * @return The target path of the file if it matches the pattern, null otherwise.
+         */
+        String getTargetPath(Path file) {
+            if (!file.startsWith(baseDir)) {
+                return null;
+            }
+            Path relativePath = baseDir.relativize(file);
+            if (!matchPath(segments, 0, toSegments(relativePath), 0)) {
+                return null;
+            }
+            Path relativeDir = relativePath.getParent();
+            if (relativeDir == null) {
+                return targetPath;
+            }
+            String relativeDirPath = StringUtils.join(toSegments(relativeDir), "/");
+            return StringUtils.isBlank(targetPath) ? relativeDirPath : StringUtils.removeEnd(targetPath, "/") + "/" + relativeDirPath;
+        }
+
+        private static String[] toSegments(Path relativePath) {
+            String[] pathSegments = new String[relativePath.getNameCount()];
+            for (int i = 0; i < pathSegments.length; i++) {
+                pathSegments[i] = relativePath.getName(i).toString();
+            }
+            return pathSegments;
+        }
+
+        private static boolean hasWildcards(String segment) {
+            return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+        }
+    }
+
+    static boolean matchPath(String[] pattern, int p, String[] path, int s) {
+        while (p < pattern.length && s < path.length) {
+            if (DOUBLE_STAR.equals(pattern[p])) {
+                while (p + 1 < pattern.length && DOUBLE_STAR.equals(pattern[p + 1])) {
+                    p++;
+                }
+                if (p == pattern.length - 1) {
+                    return true;
+                }
+                for (int i = s; i < path.length; i++) {
+                    if (matchPath(pattern, p + 1, path, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (!matchSegment(pattern[p], path[s])) {
+                return false;
+            }
+            p++;
+            s++;
+        }
+        if (s < path.length) {
+            return false;
+        }
+        for (; p < pattern.length; p++) {
+            if (!DOUBLE_STAR.equals(pattern[p])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches a single path segment against a pattern segment which may contain '*' and '?' wildcards.
+     */
+    static boolean matchSegment(String pattern, String segment) {
+        int p = 0;
+        int s = 0;
+        int starIndex = -1;
+        int starMatch = 0;
+        while (s < segment.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == segment.charAt(s))) {
+                p++;
+                s++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starIndex = p++;
+                starMatch = s;
+            } else if (starIndex >= 0) {
+                p = starIndex + 1;
+                s = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
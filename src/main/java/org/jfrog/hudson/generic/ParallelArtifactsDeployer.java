@@ -0,0 +1,258 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.build.client.ProxyConfiguration;
+import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.util.ChecksumCache;
+import org.jfrog.hudson.util.ChecksumCalculator;
+import org.jfrog.hudson.util.Credentials;
+import org.jfrog.hudson.util.FailFastExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deploys a set of artifacts using a bounded pool of worker threads.
+ * Each worker owns its own Artifactory client, so the HTTP connections are never shared between threads.
+ * Artifacts with a known SHA1 are first deployed by checksum, so content which Artifactory already has is not uploaded.
+ * The checksums of the other artifacts are calculated while they are uploaded.
+ * If a {@link BundledArtifactsDeployer} is set, its bundles are deployed by the same workers as the other artifacts.
+ * The deployment is fail-fast: once an upload fails, no new uploads are started and all the failures
+ * collected from the in-flight uploads are reported together, see {@link FailFastExecutor}.
+ */
+public class ParallelArtifactsDeployer {
+    private static final String THREAD_NAME_FORMAT = "artifactory-deployer-%d";
+
+    private final ArtifactoryServer server;
+    private final Credentials credentials;
+    private final ProxyConfiguration proxyConfiguration;
+    private final int threads;
+    private final Log log;
+    private final AtomicInteger checksumDeployAttempts = new AtomicInteger();
+    private final AtomicInteger deployedByChecksum = new AtomicInteger();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private ChecksumCache.Session checksumCache;
+    private BundledArtifactsDeployer bundledArtifactsDeployer;
+
+    public ParallelArtifactsDeployer(ArtifactoryServer server, Credentials credentials, ProxyConfiguration proxyConfiguration,
+                                     int threads, Log log) {
+        this.server = server;
+        this.credentials = credentials;
+        this.proxyConfiguration = proxyConfiguration;
+        this.threads = Math.max(1, threads);
+        this.log = log;
+    }
+
+    /**
+     * @param checksumCache If not null, records the checksums which are calculated while the files are uploaded.
+     */
+    public ParallelArtifactsDeployer setChecksumCache(ChecksumCache.Session checksumCache) {
+        this.checksumCache = checksumCache;
+        return this;
+    }
+
+    /**
+     * @param bundledArtifactsDeployer If not null, small files are deployed in bundles by this deployer.
+     */
+    public ParallelArtifactsDeployer setBundledArtifactsDeployer(BundledArtifactsDeployer bundledArtifactsDeployer) {
+        this.bundledArtifactsDeployer = bundledArtifactsDeployer;
+        return this;
+    }
+
+    /**
+     * @return The deployed artifacts, in the order of the artifacts to deploy.
+     */
+    public List<DeployDetails> deploy(Collection<DeployDetails> artifactsToDeploy) throws IOException, InterruptedException {
+        if (artifactsToDeploy.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        List<DeployDetails> artifacts = Lists.newArrayList(artifactsToDeploy);
+        List<DeploymentTask> tasks = createTasks(artifacts);
+        int poolSize = Math.min(threads, tasks.size());
+        if (poolSize > 1) {
+            log.info("Deploying " + artifacts.size() + " artifacts using " + poolSize + " threads");
+        }
+        List<List<DeployDetails>> results = new DeploymentExecutor().execute(tasks);
+        logChecksumDeploySummary();
+
+        // The tasks deploy the bundles first, so the deployed artifacts are put back in the original order
+        DeployDetails[] deployed = new DeployDetails[artifacts.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            List<Integer> indexes = tasks.get(i).getIndexes();
+            for (int j = 0; j < indexes.size(); j++) {
+                deployed[indexes.get(j)] = results.get(i).get(j);
+            }
+        }
+        return Lists.newArrayList(deployed);
+    }
+
+    /**
+     * Bundles are queued first, since each of them takes longer than a single artifact.
+     */
+    private List<DeploymentTask> createTasks(List<DeployDetails> artifacts) {
+        Map<DeployDetails, Integer> indexes = Maps.newIdentityHashMap();
+        for (int i = 0; i < artifacts.size(); i++) {
+            indexes.put(artifacts.get(i), i);
+        }
+        List<DeploymentTask> tasks = Lists.newArrayList();
+        Collection<DeployDetails> notBundled = artifacts;
+        if (bundledArtifactsDeployer != null) {
+            notBundled = Lists.newArrayList();
+            for (List<DeployDetails> bundle : bundledArtifactsDeployer.createBundles(artifacts, notBundled)) {
+                tasks.add(new DeploymentTask(bundle, getIndexes(bundle, indexes), true));
+            }
+        }
+        for (DeployDetails deployDetails : notBundled) {
+            List<DeployDetails> artifact = Collections.singletonList(deployDetails);
+            tasks.add(new DeploymentTask(artifact, getIndexes(artifact, indexes), false));
+        }
+        return tasks;
+    }
+
+    private static List<Integer> getIndexes(List<DeployDetails> artifacts, Map<DeployDetails, Integer> indexes) {
+        List<Integer> result = Lists.newArrayListWithCapacity(artifacts.size());
+        for (DeployDetails artifact : artifacts) {
+            result.add(indexes.get(artifact));
+        }
+        return result;
+    }
+
+    private List<DeployDetails> deploy(ArtifactsUploadClient client, DeploymentTask task) throws IOException {
+        if (task.isBundle()) {
+            return bundledArtifactsDeployer.deployBundle(client, task.getArtifacts());
+        }
+        return Collections.singletonList(deployArtifact(client, task.getArtifacts().get(0)));
+    }
+
+    /**
+     * Creates the client of a deployment thread.
+     */
+    protected ArtifactsUploadClient createClient() {
+        return server.createArtifactsUploadClient(credentials.getUsername(), credentials.getPassword(), proxyConfiguration, log);
+    }
+
+    /**
+     * Deploys a single artifact with the given client.
+     *
+     * @return The deployed artifact details.
+     */
+    protected DeployDetails deployArtifact(ArtifactsUploadClient client, DeployDetails deployDetails) throws IOException {
+        log.info("Deploying artifact: " + client.getArtifactUrl(deployDetails.getTargetRepository(), deployDetails.getArtifactPath()));
+        File file = deployDetails.getFile();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if (deployDetails.getSha1() != null && length >= ArtifactsUploadClient.CHECKSUM_DEPLOY_MIN_FILE_SIZE) {
+            checksumDeployAttempts.incrementAndGet();
+            if (client.deployByChecksum(deployDetails)) {
+                deployedByChecksum.incrementAndGet();
+                bytesSaved.addAndGet(length);
+                return deployDetails;
+            }
+        }
+        Map<String, String> checksums = client.upload(deployDetails);
+        // The next deployment of the unchanged file is by checksum, without reading the file
+        if (checksumCache != null && file.lastModified() == lastModified && file.length() == length) {
+            checksumCache.record(file, checksums);
+        }
+        return new DeployDetails.Builder()
+                .file(file)
+                .artifactPath(deployDetails.getArtifactPath())
+                .targetRepository(deployDetails.getTargetRepository())
+                .md5(checksums.get(ChecksumCalculator.MD5)).sha1(checksums.get(ChecksumCalculator.SHA1))
+                .addProperties(deployDetails.getProperties())
+                .build();
+    }
+
+    /**
+     * @return The number of artifacts which were deployed by checksum, without uploading their content.
+     */
+    public int getDeployedByChecksum() {
+        return deployedByChecksum.get();
+    }
+
+    /**
+     * @return The total size of the artifacts which were deployed by checksum.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    private void logChecksumDeploySummary() {
+        if (checksumDeployAttempts.get() > 0) {
+            log.info(String.format("Checksum deploy: %d out of %d artifacts already existed in Artifactory, %s were not uploaded",
+                    deployedByChecksum.get(), checksumDeployAttempts.get(), FileUtils.byteCountToDisplaySize(bytesSaved.get())));
+        }
+    }
+
+    private class DeploymentExecutor extends FailFastExecutor<DeploymentTask, List<DeployDetails>, ArtifactsUploadClient> {
+        DeploymentExecutor() {
+            super(threads, THREAD_NAME_FORMAT);
+        }
+
+        @Override
+        protected ArtifactsUploadClient createWorker() {
+            return createClient();
+        }
+
+        @Override
+        protected List<DeployDetails> process(ArtifactsUploadClient client, DeploymentTask task) throws IOException {
+            return deploy(client, task);
+        }
+
+        @Override
+        protected String describe(DeploymentTask task) {
+            DeployDetails deployDetails = task.getArtifacts().get(0);
+            String path = deployDetails.getTargetRepository() + "/" + deployDetails.getArtifactPath();
+            if (task.isBundle()) {
+                return "Bundle of " + task.getArtifacts().size() + " artifacts starting at " + path;
+            }
+            return path;
+        }
+
+        @Override
+        protected int getSize(DeploymentTask task) {
+            return task.getArtifacts().size();
+        }
+
+        @Override
+        protected String getFailureMessage(int failed, int notProcessed) {
+            String message = "Failed deploying " + failed + " artifacts";
+            return notProcessed > 0 ? message + ", " + notProcessed + " artifacts were not deployed" : message;
+        }
+    }
+
+    private static class DeploymentTask {
+        private final List<DeployDetails> artifacts;
+        // The positions of the artifacts in the artifacts to deploy
+        private final List<Integer> indexes;
+        private final boolean bundle;
+
+        DeploymentTask(List<DeployDetails> artifacts, List<Integer> indexes, boolean bundle) {
+            this.artifacts = artifacts;
+            this.indexes = indexes;
+            this.bundle = bundle;
+        }
+
+        List<DeployDetails> getArtifacts() {
+            return artifacts;
+        }
+
+        List<Integer> getIndexes() {
+            return indexes;
+        }
+
+        boolean isBundle() {
+            return bundle;
+        }
+    }
+}
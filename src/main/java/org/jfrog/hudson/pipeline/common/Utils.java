@@ -1,7 +1,6 @@
 package org.jfrog.hudson.pipeline.common;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Maps;
@@ -18,7 +17,6 @@ import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.Jenkins;
 import jenkins.plugins.nodejs.tools.NodeJSInstallation;
 import jenkins.security.MasterToSlaveCallable;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.Ref;
@@ -37,12 +35,11 @@ import org.jfrog.hudson.pipeline.common.types.buildInfo.BuildInfo;
 import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
 import org.jfrog.hudson.util.ExtractorUtils;
 import org.jfrog.hudson.util.IncludesExcludes;
+import org.jfrog.hudson.util.JsonMappers;
 import org.jfrog.hudson.util.RepositoriesUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringWriter;
 import java.nio.file.Paths;
 import java.util.*;
 
@@ -74,8 +71,10 @@ public class Utils {
         if (pipelineServer != null) {
             CredentialsConfig credentials = pipelineServer.createCredentialsConfig();
 
-            return new org.jfrog.hudson.ArtifactoryServer(null, pipelineServer.getUrl(), credentials,
+            org.jfrog.hudson.ArtifactoryServer server = new org.jfrog.hudson.ArtifactoryServer(null, pipelineServer.getUrl(), credentials,
                     credentials, pipelineServer.getConnection().getTimeout(), pipelineServer.isBypassProxy(), pipelineServer.getConnection().getRetry());
+            server.setDeploymentThreads(pipelineServer.getDeploymentThreads());
+            return server;
         }
         org.jfrog.hudson.ArtifactoryServer server = RepositoriesUtils.getArtifactoryServer(artifactoryServerID, RepositoriesUtils.getArtifactoryServers());
         if (server == null) {
@@ -91,11 +90,11 @@ public class Utils {
         return buildinfo;
     }
 
+    /**
+     * @return The shared lenient mapper. Must not be reconfigured.
+     */
     public static ObjectMapper mapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        return mapper;
+        return JsonMappers.lenientMapper();
     }
 
     public static EnvVars extractBuildParameters(Run build, TaskListener listener) {
@@ -188,28 +187,31 @@ public class Utils {
         return result;
     }
 
+    /**
+     * Read the build info generated by the build extractor. The file is parsed on the agent, and only the parsed build
+     * info is sent to the master, so the JSON content is never held in memory.
+     */
     public static org.jfrog.build.api.Build getGeneratedBuildInfo(Run build, TaskListener listener, Launcher launcher, String jsonBuildPath) {
-        ObjectMapper mapper = new ObjectMapper();
         FilePath generatedBuildInfoFilePath = null;
-        InputStream inputStream = null;
         try {
-            StringWriter writer = new StringWriter();
             generatedBuildInfoFilePath = new FilePath(launcher.getChannel(), jsonBuildPath);
-            inputStream = generatedBuildInfoFilePath.read();
-            IOUtils.copy(inputStream, writer, "UTF-8");
-            String buildInfoFileContent = writer.toString();
-            if (StringUtils.isBlank(buildInfoFileContent)) {
-                return new org.jfrog.build.api.Build();
-            }
-            return mapper.readValue(buildInfoFileContent, org.jfrog.build.api.Build.class);
+            return generatedBuildInfoFilePath.act(new MasterToSlaveFileCallable<org.jfrog.build.api.Build>() {
+                public org.jfrog.build.api.Build invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+                    ObjectMapper mapper = JsonMappers.strictMapper();
+                    try (JsonParser parser = mapper.getFactory().createParser(file)) {
+                        if (parser.nextToken() == null) {
+                            // Empty file
+                            return new org.jfrog.build.api.Build();
+                        }
+                        return mapper.readValue(parser, org.jfrog.build.api.Build.class);
+                    }
+                }
+            });
         } catch (Exception e) {
             listener.error("Couldn't read generated build info at : " + jsonBuildPath);
             build.setResult(Result.FAILURE);
             throw new Run.RunnerAbortedException();
         } finally {
-            if (inputStream != null) {
-                IOUtils.closeQuietly(inputStream);
-            }
             deleteFilePathQuietly(generatedBuildInfoFilePath);
         }
     }
@@ -294,8 +296,7 @@ public class Utils {
         if (!allowedParams.containsAll(promotionParams.keySet())) {
             throw new IllegalArgumentException("Only the following arguments are allowed: " + allowedParams.toString());
         }
-        final ObjectMapper mapper = new ObjectMapper();
-        PromotionConfig config = mapper.convertValue(promotionParams, PromotionConfig.class);
+        PromotionConfig config = JsonMappers.strictMapper().convertValue(promotionParams, PromotionConfig.class);
 
         return config;
     }
@@ -324,8 +325,7 @@ public class Utils {
         if (!allowedParams.containsAll(promotionParams.keySet())) {
             throw new IllegalArgumentException("Only the following arguments are allowed: " + allowedParams.toString());
         }
-        final ObjectMapper mapper = new ObjectMapper();
-        DistributionConfig config = mapper.convertValue(promotionParams, DistributionConfig.class);
+        DistributionConfig config = JsonMappers.strictMapper().convertValue(promotionParams, DistributionConfig.class);
 
         return config;
     }
@@ -24,13 +24,12 @@ import org.jfrog.hudson.pipeline.common.ArtifactoryConfigurator;
 import org.jfrog.hudson.pipeline.common.docker.utils.DockerUtils;
 import org.jfrog.hudson.util.CredentialManager;
 import org.jfrog.hudson.util.ExtractorUtils;
+import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
-import static org.jfrog.hudson.util.ExtractorUtils.entityToString;
-
 /**
  * Created by romang on 8/9/16.
  */
@@ -67,6 +66,10 @@ public class DockerImage implements Serializable {
         return System.currentTimeMillis() - createdTime > MAX_AGE_MILLI;
     }
 
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
     public int getBuildInfoId() {
         return buildInfoId;
     }
@@ -113,6 +116,36 @@ public class DockerImage implements Serializable {
      * @throws IOException
      */
     public Module generateBuildInfoModule(Run build, TaskListener listener, ArtifactoryConfigurator config, String buildName, String buildNumber, String timestamp) throws IOException {
+        ArtifactoryServer server = config.getArtifactoryServer();
+        ArtifactoryDependenciesClient dependenciesClient = null;
+        ArtifactoryBuildInfoClient propertyChangeClient = null;
+        DockerLayersTagger layersTagger = null;
+        try {
+            dependenciesClient = createDependenciesClient(build, listener, server);
+            propertyChangeClient = createPropertyChangeClient(build, config, server);
+            layersTagger = createLayersTagger(build, listener, config, server);
+            return generateBuildInfoModule(build, listener, config, buildName, buildNumber, timestamp,
+                    dependenciesClient, propertyChangeClient, layersTagger);
+        } finally {
+            if (dependenciesClient != null) {
+                dependenciesClient.close();
+            }
+            if (propertyChangeClient != null) {
+                propertyChangeClient.close();
+            }
+            if (layersTagger != null) {
+                layersTagger.close();
+            }
+        }
+    }
+
+    /**
+     * Generates the build-info module for this docker image, using the given clients and layers tagger.
+     * They are not closed, so that they can be reused for the modules of other images.
+     */
+    public Module generateBuildInfoModule(Run build, TaskListener listener, ArtifactoryConfigurator config, String buildName, String buildNumber, String timestamp,
+                                          ArtifactoryDependenciesClient dependenciesClient, ArtifactoryBuildInfoClient propertyChangeClient,
+                                          DockerLayersTagger layersTagger) throws IOException {
         if (artifactsProps == null) {
             artifactsProps = ArrayListMultimap.create();
         }
@@ -127,45 +160,57 @@ public class DockerImage implements Serializable {
         buildInfoItemsProps.setProperty("build.timestamp", timestamp);
 
         ArtifactoryServer server = config.getArtifactoryServer();
-        CredentialsConfig preferredResolver = server.getDeployerCredentialsConfig();
-        ArtifactoryDependenciesClient dependenciesClient = null;
-        ArtifactoryBuildInfoClient propertyChangeClient = null;
 
-        try {
-            dependenciesClient = server.createArtifactoryDependenciesClient(
-                    preferredResolver.provideUsername(build.getParent()), preferredResolver.providePassword(build.getParent()),
-                    server.createProxyConfiguration(Jenkins.getInstance().proxy), listener);
+        Module buildInfoModule = new Module();
+        buildInfoModule.setId(imageTag.substring(imageTag.indexOf("/") + 1));
 
-            CredentialsConfig preferredDeployer = CredentialManager.getPreferredDeployer(config, server);
-            propertyChangeClient = server.createArtifactoryClient(
-                    preferredDeployer.provideUsername(build.getParent()), preferredDeployer.providePassword(build.getParent()),
-                    server.createProxyConfiguration(Jenkins.getInstance().proxy));
+        // If manifest and imagePath not found, return.
+        if ((StringUtils.isEmpty(manifest) || StringUtils.isEmpty(imagePath)) && !findAndSetManifestFromArtifactory(server, dependenciesClient, listener)) {
+            return buildInfoModule;
+        }
 
-            Module buildInfoModule = new Module();
-            buildInfoModule.setId(imageTag.substring(imageTag.indexOf("/") + 1));
+        listener.getLogger().println(getLogPrefix() + "Fetching details of published docker layers from Artifactory...");
+        boolean includeVirtualReposSupported = propertyChangeClient.getArtifactoryVersion().isAtLeast(VIRTUAL_REPOS_SUPPORTED_VERSION);
+        DockerLayers layers = createLayers(server, dependenciesClient, includeVirtualReposSupported);
 
-            // If manifest and imagePath not found, return.
-            if ((StringUtils.isEmpty(manifest) || StringUtils.isEmpty(imagePath)) && !findAndSetManifestFromArtifactory(server, dependenciesClient, listener)) {
-                return buildInfoModule;
-            }
+        listener.getLogger().println(getLogPrefix() + "Tagging published docker layers with build properties in Artifactory...");
+        setDependenciesAndArtifacts(buildInfoModule, layers, artifactsPropsStr, buildInfoItemsProps,
+                dependenciesClient, layersTagger, server);
+        setBuildInfoModuleProps(buildInfoModule);
+        return buildInfoModule;
+    }
 
-            listener.getLogger().println("Fetching details of published docker layers from Artifactory...");
-            boolean includeVirtualReposSupported = propertyChangeClient.getArtifactoryVersion().isAtLeast(VIRTUAL_REPOS_SUPPORTED_VERSION);
-            DockerLayers layers = createLayers(dependenciesClient, includeVirtualReposSupported);
+    public static ArtifactoryDependenciesClient createDependenciesClient(Run build, TaskListener listener, ArtifactoryServer server) {
+        CredentialsConfig preferredResolver = server.getDeployerCredentialsConfig();
+        return server.createArtifactoryDependenciesClient(
+                preferredResolver.provideUsername(build.getParent()), preferredResolver.providePassword(build.getParent()),
+                server.createProxyConfiguration(Jenkins.getInstance().proxy), listener);
+    }
 
-            listener.getLogger().println("Tagging published docker layers with build properties in Artifactory...");
-            setDependenciesAndArtifacts(buildInfoModule, layers, artifactsPropsStr, buildInfoItemsProps,
-                    dependenciesClient, propertyChangeClient, server);
-            setBuildInfoModuleProps(buildInfoModule);
-            return buildInfoModule;
-        } finally {
-            if (dependenciesClient != null) {
-                dependenciesClient.close();
-            }
-            if (propertyChangeClient != null) {
-                propertyChangeClient.close();
-            }
-        }
+    public static ArtifactoryBuildInfoClient createPropertyChangeClient(Run build, ArtifactoryConfigurator config, ArtifactoryServer server) {
+        CredentialsConfig preferredDeployer = CredentialManager.getPreferredDeployer(config, server);
+        return server.createArtifactoryClient(
+                preferredDeployer.provideUsername(build.getParent()), preferredDeployer.providePassword(build.getParent()),
+                server.createProxyConfiguration(Jenkins.getInstance().proxy));
+    }
+
+    /**
+     * Creates a layers tagger with the preferred deployer of the server. The tagger can be shared by images whose
+     * modules are generated concurrently, and should be closed once they are generated.
+     */
+    public static DockerLayersTagger createLayersTagger(Run build, TaskListener listener, ArtifactoryConfigurator config, ArtifactoryServer server) {
+        CredentialsConfig preferredDeployer = CredentialManager.getPreferredDeployer(config, server);
+        return new DockerLayersTagger(server.createArtifactoryClientBuilder(
+                preferredDeployer.provideUsername(build.getParent()), preferredDeployer.providePassword(build.getParent()),
+                server.createProxyConfiguration(Jenkins.getInstance().proxy), new JenkinsBuildInfoLog(listener)),
+                DockerLayersTagger.DEFAULT_THREADS);
+    }
+
+    /**
+     * The modules of several images may be generated concurrently, so their log lines are prefixed with the image tag.
+     */
+    private String getLogPrefix() {
+        return "[" + imageTag + "] ";
     }
 
     /**
@@ -195,7 +240,7 @@ public class DockerImage implements Serializable {
         }
 
         // Couldn't find correct manifest
-        listener.getLogger().println("Could not find corresponding manifest.json file in Artifactory.");
+        listener.getLogger().println(getLogPrefix() + "Could not find corresponding manifest.json file in Artifactory.");
         return false;
     }
 
@@ -222,7 +267,7 @@ public class DockerImage implements Serializable {
             return true;
         }
 
-        listener.getLogger().println(String.format("Found incorrect manifest.json file in Artifactory in the following path: %s\nExpecting: %s got: %s", manifestPath, imageId, imageDigest));
+        listener.getLogger().println(getLogPrefix() + String.format("Found incorrect manifest.json file in Artifactory in the following path: %s\nExpecting: %s got: %s", manifestPath, imageId, imageDigest));
         return false;
     }
 
@@ -252,11 +297,26 @@ public class DockerImage implements Serializable {
         buildInfoModuleProps.putAll(props);
     }
 
-    private DockerLayers createLayers(ArtifactoryDependenciesClient dependenciesClient, boolean includeVirtualReposSupported) throws IOException {
-        String queryStr = getAqlQuery(includeVirtualReposSupported);
-        AqlSearchResult result = dependenciesClient.searchArtifactsByAql(queryStr);
-
+    /**
+     * Creates the layers of the image. Only the layers which are not in the {@link DockerLayersCache} are queried.
+     */
+    private DockerLayers createLayers(ArtifactoryServer server, ArtifactoryDependenciesClient dependenciesClient, boolean includeVirtualReposSupported) throws IOException {
         DockerLayers layers = new DockerLayers();
+        List<String> uncachedDigests = new ArrayList<String>();
+        for (String digest : DockerUtils.getLayersDigests(manifest)) {
+            DockerLayer layer = DockerLayersCache.getLayer(server.getUrl(), targetRepo, imagePath, digest);
+            if (layer != null) {
+                layers.addLayer(layer);
+            } else {
+                uncachedDigests.add(digest);
+            }
+        }
+        if (uncachedDigests.isEmpty()) {
+            return layers;
+        }
+
+        String queryStr = getAqlQuery(uncachedDigests, includeVirtualReposSupported);
+        AqlSearchResult result = dependenciesClient.searchArtifactsByAql(queryStr);
         for (AqlSearchResult.SearchEntry entry : result.getResults()) {
             if (!StringUtils.equals(entry.getPath(), imagePath)) {
                 continue;
@@ -269,42 +329,55 @@ public class DockerImage implements Serializable {
 
             DockerLayer layer = new DockerLayer(entry);
             layers.addLayer(layer);
+            DockerLayersCache.putLayer(server.getUrl(), targetRepo, imagePath, layer);
         }
         return layers;
     }
 
-    private void setDependenciesAndArtifacts(Module buildInfoModule, DockerLayers layers, String artifactsProps, Properties buildInfoItemsProps, ArtifactoryDependenciesClient dependenciesClient, ArtifactoryBuildInfoClient propertyChangeClient, ArtifactoryServer server) throws IOException {
+    private void setDependenciesAndArtifacts(Module buildInfoModule, DockerLayers layers, String artifactsProps, Properties buildInfoItemsProps, ArtifactoryDependenciesClient dependenciesClient, DockerLayersTagger layersTagger, ArtifactoryServer server) throws IOException {
         DockerLayer historyLayer = layers.getByDigest(imageId);
         if (historyLayer == null) {
             throw new IllegalStateException("Could not find the history docker layer: " + imageId + " for image: " + imageTag + " in Artifactory.");
         }
-        HttpResponse res = dependenciesClient.downloadArtifact(server.getUrl() + "/" + historyLayer.getFullPath());
-        int dependencyLayerNum = DockerUtils.getNumberOfDependentLayers(ExtractorUtils.entityToString(res.getEntity()));
+        Integer dependencyLayerNum = DockerLayersCache.getDependentLayersCount(server.getUrl(), imageId);
+        if (dependencyLayerNum == null) {
+            HttpResponse res = dependenciesClient.downloadArtifact(server.getUrl() + "/" + historyLayer.getFullPath());
+            dependencyLayerNum = DockerUtils.getNumberOfDependentLayers(ExtractorUtils.entityToString(res.getEntity()));
+            DockerLayersCache.putDependentLayersCount(server.getUrl(), imageId, dependencyLayerNum);
+        }
 
-        List<Dependency> dependencies = new ArrayList<Dependency>();
-        List<Artifact> artifacts = new ArrayList<Artifact>();
+        List<DockerLayer> dependencyLayers = new ArrayList<DockerLayer>();
+        List<DockerLayer> artifactLayers = new ArrayList<DockerLayer>();
         Iterator<String> it = DockerUtils.getLayersDigests(manifest).iterator();
         for (int i = 0; i < dependencyLayerNum; i++) {
             String digest = it.next();
             DockerLayer layer = layers.getByDigest(digest);
-            HttpResponse httpResponse = propertyChangeClient.executeUpdateFileProperty(layer.getFullPath(), artifactsProps);
-            validateResponse(httpResponse);
+            if (layer == null) {
+                throw new IllegalStateException("Could not find the docker layer: " + digest + " for image: " + imageTag + " in Artifactory.");
+            }
+            dependencyLayers.add(layer);
+        }
+        while (it.hasNext()) {
+            DockerLayer layer = layers.getByDigest(it.next());
+            if (layer != null) {
+                artifactLayers.add(layer);
+            }
+        }
+
+        // All the layers are tagged before the module is built, so a failed layer fails the module as before
+        List<DockerLayer> taggedLayers = new ArrayList<DockerLayer>(dependencyLayers);
+        taggedLayers.addAll(artifactLayers);
+        layersTagger.tag(taggedLayers, artifactsProps);
+
+        List<Dependency> dependencies = new ArrayList<Dependency>();
+        for (DockerLayer layer : dependencyLayers) {
             Dependency dependency = new DependencyBuilder().id(layer.getFileName()).sha1(layer.getSha1()).properties(buildInfoItemsProps).build();
             dependencies.add(dependency);
-
-            Artifact artifact = new ArtifactBuilder(layer.getFileName()).sha1(layer.getSha1()).properties(buildInfoItemsProps).build();
-            artifacts.add(artifact);
         }
         buildInfoModule.setDependencies(dependencies);
 
-        while (it.hasNext()) {
-            String digest = it.next();
-            DockerLayer layer = layers.getByDigest(digest);
-            if (layer == null) {
-                continue;
-            }
-            HttpResponse httpResponse = propertyChangeClient.executeUpdateFileProperty(layer.getFullPath(), artifactsProps);
-            validateResponse(httpResponse);
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for (DockerLayer layer : taggedLayers) {
             Artifact artifact = new ArtifactBuilder(layer.getFileName()).sha1(layer.getSha1()).properties(buildInfoItemsProps).build();
             artifacts.add(artifact);
         }
@@ -312,14 +385,13 @@ public class DockerImage implements Serializable {
     }
 
     /**
-     * Prepare AQL query to get all the manifest layers from Artifactory.
+     * Prepare AQL query to get the given manifest layers from Artifactory.
      * Needed for build-info sha1/md5 checksum for each artifact and dependency.
      *
      * @return
      * @throws IOException
      */
-    private String getAqlQuery(boolean includeVirtualRepos) throws IOException {
-        List<String> layersDigest = DockerUtils.getLayersDigests(manifest);
+    private String getAqlQuery(List<String> layersDigest, boolean includeVirtualRepos) throws IOException {
         StringBuilder aqlRequestForDockerSha = new StringBuilder("items.find({")
             .append("\"path\":\"").append(imagePath).append("\",\"$or\":[");
 
@@ -344,12 +416,4 @@ public class DockerImage implements Serializable {
         }
         return aqlRequestForDockerSha.toString();
     }
-
-    private void validateResponse(HttpResponse httpResponse) throws IOException {
-        int code = httpResponse.getStatusLine().getStatusCode();
-        if (code != 204) {
-            String response = entityToString(httpResponse.getEntity());
-            throw new IOException("Failed while trying to set properties on docker layer: " + response);
-        }
-    }
 }
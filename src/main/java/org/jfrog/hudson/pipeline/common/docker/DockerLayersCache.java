@@ -0,0 +1,52 @@
+package org.jfrog.hudson.pipeline.common.docker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches on the master the docker layers metadata fetched from Artifactory, so that the layers shared by the images
+ * of many builds are queried once.
+ * A layer is identified by its digest within the image path it was pushed to, since Artifactory keeps a copy of
+ * each layer under every image path. A layer which was deleted from Artifactory may be served from the cache until
+ * its entry expires.
+ * The number of dependent layers of an image is calculated from its config, which is immutable for a given digest.
+ */
+public class DockerLayersCache {
+    static final int MAX_LAYERS = 10000;
+    static final int MAX_DEPENDENT_LAYERS_COUNTS = 1000;
+    private static final long LAYERS_TTL_MINUTES = 60;
+    private static final long DEPENDENT_LAYERS_COUNTS_TTL_HOURS = 24;
+
+    private static final Cache<List<String>, DockerLayer> layers = CacheBuilder.newBuilder()
+            .maximumSize(MAX_LAYERS).expireAfterWrite(LAYERS_TTL_MINUTES, TimeUnit.MINUTES).build();
+    private static final Cache<List<String>, Integer> dependentLayersCounts = CacheBuilder.newBuilder()
+            .maximumSize(MAX_DEPENDENT_LAYERS_COUNTS).expireAfterWrite(DEPENDENT_LAYERS_COUNTS_TTL_HOURS, TimeUnit.HOURS).build();
+
+    /**
+     * @param repo The repository the image was pushed to. The cached layer may be in another repository, if the
+     *             image was pushed to a virtual repository.
+     * @return The cached layer, or null if it is not cached.
+     */
+    public static DockerLayer getLayer(String artifactoryUrl, String repo, String imagePath, String digest) {
+        return layers.getIfPresent(Arrays.asList(artifactoryUrl, repo, imagePath, digest));
+    }
+
+    public static void putLayer(String artifactoryUrl, String repo, String imagePath, DockerLayer layer) {
+        layers.put(Arrays.asList(artifactoryUrl, repo, imagePath, layer.getDigest()), layer);
+    }
+
+    /**
+     * @return The cached number of dependent layers of the image with the given config digest, or null if it is not cached.
+     */
+    public static Integer getDependentLayersCount(String artifactoryUrl, String configDigest) {
+        return dependentLayersCounts.getIfPresent(Arrays.asList(artifactoryUrl, configDigest));
+    }
+
+    public static void putDependentLayersCount(String artifactoryUrl, String configDigest, int count) {
+        dependentLayersCounts.put(Arrays.asList(artifactoryUrl, configDigest), count);
+    }
+}
@@ -0,0 +1,115 @@
+package org.jfrog.hudson.pipeline.common.docker;
+
+import com.google.common.collect.Lists;
+import org.apache.http.HttpResponse;
+import org.jfrog.build.extractor.clientConfiguration.ArtifactoryBuildInfoClientBuilder;
+import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient;
+import org.jfrog.hudson.util.FailFastExecutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.jfrog.hudson.util.ExtractorUtils.entityToString;
+
+/**
+ * Tags docker layers with properties using a bounded pool of worker threads.
+ * The pool is shared by all the images tagged concurrently with this tagger, so their layers are tagged by {@code threads}
+ * threads at most. Each pool thread owns its own Artifactory client, so the HTTP connections are never shared between threads.
+ * The tagging is fail-fast: once a layer of an image fails, no new layers of the image are tagged and all the failed layers
+ * are reported together.
+ */
+public class DockerLayersTagger implements Closeable {
+    public static final int DEFAULT_THREADS = 8;
+    private static final String THREAD_NAME_FORMAT = "artifactory-docker-tagger-%d";
+
+    private final ArtifactoryBuildInfoClientBuilder clientBuilder;
+    private final int threads;
+    private final ExecutorService executor;
+    private final Queue<ArtifactoryBuildInfoClient> clients = new ConcurrentLinkedQueue<ArtifactoryBuildInfoClient>();
+    private final ThreadLocal<ArtifactoryBuildInfoClient> threadClient = new ThreadLocal<ArtifactoryBuildInfoClient>() {
+        @Override
+        protected ArtifactoryBuildInfoClient initialValue() {
+            ArtifactoryBuildInfoClient client = clientBuilder.build();
+            clients.add(client);
+            return client;
+        }
+    };
+
+    public DockerLayersTagger(ArtifactoryBuildInfoClientBuilder clientBuilder, int threads) {
+        this.clientBuilder = clientBuilder;
+        this.threads = Math.max(1, threads);
+        this.executor = Executors.newFixedThreadPool(this.threads, FailFastExecutor.createThreadFactory(THREAD_NAME_FORMAT));
+    }
+
+    /**
+     * @param artifactsProps The properties string, as accepted by the properties REST API.
+     */
+    public void tag(Collection<DockerLayer> layers, final String artifactsProps) throws IOException {
+        if (layers.isEmpty()) {
+            return;
+        }
+        FailFastExecutor<DockerLayer, Void, ArtifactoryBuildInfoClient> layersExecutor =
+                new FailFastExecutor<DockerLayer, Void, ArtifactoryBuildInfoClient>(threads, executor) {
+                    @Override
+                    protected ArtifactoryBuildInfoClient createWorker() {
+                        return threadClient.get();
+                    }
+
+                    @Override
+                    protected Void process(ArtifactoryBuildInfoClient client, DockerLayer layer) throws IOException {
+                        HttpResponse httpResponse = client.executeUpdateFileProperty(layer.getFullPath(), artifactsProps);
+                        int code = httpResponse.getStatusLine().getStatusCode();
+                        if (code != 204) {
+                            throw new IOException(entityToString(httpResponse.getEntity()));
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    protected void closeWorker(ArtifactoryBuildInfoClient client) {
+                        // The client is owned by the pool thread, and is closed with the tagger
+                    }
+
+                    @Override
+                    protected String describe(DockerLayer layer) {
+                        return layer.getFullPath();
+                    }
+
+                    @Override
+                    protected String getFailureMessage(int failed, int notProcessed) {
+                        String message = "Failed while trying to set properties on " + failed + " docker layers";
+                        return notProcessed > 0 ? message + ", " + notProcessed + " docker layers were not tagged" : message;
+                    }
+                };
+        try {
+            layersExecutor.execute(Lists.newArrayList(layers));
+        } catch (InterruptedException e) {
+            // Other images may still be tagged by the pool, so only the workers of this image were stopped
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while tagging docker layers");
+        }
+    }
+
+    /**
+     * Stops the pool threads and closes their clients.
+     */
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ArtifactoryBuildInfoClient client;
+        while ((client = clients.poll()) != null) {
+            client.close();
+        }
+    }
+}
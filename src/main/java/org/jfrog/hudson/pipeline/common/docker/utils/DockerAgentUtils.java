@@ -1,29 +1,60 @@
 package org.jfrog.hudson.pipeline.common.docker.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import hudson.Launcher;
 import hudson.model.Node;
 import hudson.model.TaskListener;
+import hudson.remoting.Future;
+import hudson.remoting.VirtualChannel;
 import jenkins.model.Jenkins;
 import jenkins.security.MasterToSlaveCallable;
 import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
 import org.jfrog.hudson.pipeline.common.docker.DockerImage;
 import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
 
 /**
  * Created by romang on 8/15/16.
  */
 public class DockerAgentUtils implements Serializable {
-    // Docker images cache. Every image which is intersepted by the Build-Info Proxy, is added to this cache,
-    // so that it can be used to create the build-info in Artifactory.
-    private static final List<DockerImage> images = Collections.synchronizedList(new ArrayList<DockerImage>());
+    private static final Logger logger = Logger.getLogger(DockerAgentUtils.class.getName());
+    // Maximum number of images in the cache. Beyond it, the images of the least recently active builds are evicted.
+    static final int MAX_CACHED_IMAGES = 10000;
+    private static final long EVICTION_INTERVAL_MINUTES = 10;
+
+    // Docker images cache, by build-info ID. Every image which is intersepted by the Build-Info Proxy,
+    // is added to this cache, so that it can be used to create the build-info in Artifactory.
+    private static final ConcurrentMap<Integer, List<DockerImage>> images = new ConcurrentHashMap<Integer, List<DockerImage>>();
+    private static final AtomicInteger cachedImagesCount = new AtomicInteger();
+    private static final AtomicLong evictedImagesCount = new AtomicLong();
+    // Used on the master. The agents which captured images, by build-info ID.
+    private static final Cache<Integer, CapturingNodes> capturingNodes = CacheBuilder.newBuilder()
+            .expireAfterWrite(12, TimeUnit.HOURS).build();
+    static final long NODE_CALL_TIMEOUT_SECONDS = 60;
 
     /**
      * Registers an image to be captured by the build-info proxy.
+     * Registrations don't lock each other, since the images cache is a concurrent map by build-info ID.
      *
      * @param imageTag
      * @param host
@@ -32,33 +63,90 @@ public class DockerAgentUtils implements Serializable {
      * @throws IOException
      * @throws InterruptedException
      */
-    public synchronized static void registerImagOnAgents(Launcher launcher, final String imageTag,
+    public static void registerImagOnAgents(Launcher launcher, final String imageTag,
             final String host, final String targetRepo, final ArrayListMultimap<String, String> artifactsProps,
                 final int buildInfoId) throws IOException, InterruptedException {
         // Master
         final String imageId = getImageIdFromAgent(launcher, imageTag, host);
         registerImage(imageId, imageTag, targetRepo, artifactsProps, buildInfoId);
 
-        // Agents
-        List<Node> nodes = Jenkins.getInstance().getNodes();
+        // Agents. The node which will capture the image is not known yet, so the image is registered on all of them.
+        callOnNodes(Jenkins.getInstance().getNodes(), new MasterToSlaveCallable<Boolean, IOException>() {
+            public Boolean call() throws IOException {
+                registerImage(imageId, imageTag, targetRepo, artifactsProps, buildInfoId);
+                return true;
+            }
+        }, new JenkinsBuildInfoLog(launcher.getListener()), "register docker image " + imageTag, null);
+    }
+
+    /**
+     * Calls all the given nodes in parallel. Each node which doesn't respond within {@link #NODE_CALL_TIMEOUT_SECONDS}
+     * is skipped, so that offline or slow nodes delay the call by one timeout at most.
+     *
+     * @param action      Describes the call in the messages of the failed nodes.
+     * @param failedNodes If not null, the online nodes which failed or didn't respond are added to it.
+     * @return The results of the nodes which responded.
+     */
+    private static <V> Map<Node, V> callOnNodes(Collection<Node> nodes, MasterToSlaveCallable<V, IOException> callable,
+                                                Log log, String action, Collection<Node> failedNodes) throws InterruptedException {
+        Map<Node, Future<V>> futures = new LinkedHashMap<Node, Future<V>>();
         for (Node node : nodes) {
-            if (node == null || node.getChannel() == null) {
+            VirtualChannel channel = node == null ? null : node.getChannel();
+            if (channel == null) {
                 continue;
             }
             try {
-                node.getChannel().call(new MasterToSlaveCallable<Boolean, IOException>() {
-                    public Boolean call() throws IOException {
-                        registerImage(imageId, imageTag, targetRepo, artifactsProps, buildInfoId);
-                        return true;
-                    }
-                });
+                futures.put(node, channel.callAsync(callable));
             } catch (Exception e) {
-                launcher.getListener().getLogger().println("Could not register docker image " + imageTag +
-                        " on Jenkins node '" + node.getDisplayName() + "' due to: " + e.getMessage() +
-                        " This could be because this node is now offline."
-                );
+                printNodeFailure(log, action, node, e.getMessage());
+                addFailedNode(failedNodes, node);
+            }
+        }
+
+        Map<Node, V> results = new LinkedHashMap<Node, V>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(NODE_CALL_TIMEOUT_SECONDS);
+        for (Map.Entry<Node, Future<V>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                printNodeFailure(log, action, entry.getKey(), "no response within " + NODE_CALL_TIMEOUT_SECONDS + " seconds.");
+                addFailedNode(failedNodes, entry.getKey());
+            } catch (ExecutionException e) {
+                printNodeFailure(log, action, entry.getKey(), e.getCause().getMessage());
+                addFailedNode(failedNodes, entry.getKey());
             }
         }
+        return results;
+    }
+
+    private static void addFailedNode(Collection<Node> failedNodes, Node node) {
+        if (failedNodes != null) {
+            failedNodes.add(node);
+        }
+    }
+
+    private static void printNodeFailure(Log log, String action, Node node, String message) {
+        log.warn("Could not " + action + " on Jenkins node '" + node.getDisplayName() +
+                "' due to: " + message + " This could be because this node is now offline.");
+    }
+
+    /**
+     * @return The nodes which captured images of the build-info, or null if they are not known.
+     */
+    private static List<Node> getCapturingNodes(int buildInfoId) {
+        CapturingNodes buildCapturingNodes = capturingNodes.getIfPresent(buildInfoId);
+        if (buildCapturingNodes == null || !buildCapturingNodes.isComplete()) {
+            return null;
+        }
+        List<Node> nodes = new ArrayList<Node>();
+        for (String nodeName : buildCapturingNodes.getNodeNames()) {
+            Node node = Jenkins.getInstance().getNode(nodeName);
+            if (node != null) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
     }
 
     /**
@@ -70,10 +158,111 @@ public class DockerAgentUtils implements Serializable {
      * @param buildInfoId
      * @throws IOException
      */
-    private static void registerImage(String imageId, String imageTag, String targetRepo,
+    static void registerImage(String imageId, String imageTag, String targetRepo,
             ArrayListMultimap<String, String> artifactsProps, int buildInfoId) throws IOException {
-        DockerImage image = new DockerImage(imageId, imageTag, targetRepo, buildInfoId, artifactsProps);
-        images.add(image);
+        final DockerImage image = new DockerImage(imageId, imageTag, targetRepo, buildInfoId, artifactsProps);
+        images.compute(buildInfoId, new BiFunction<Integer, List<DockerImage>, List<DockerImage>>() {
+            public List<DockerImage> apply(Integer id, List<DockerImage> buildImages) {
+                if (buildImages == null) {
+                    buildImages = new CopyOnWriteArrayList<DockerImage>();
+                }
+                buildImages.add(image);
+                cachedImagesCount.incrementAndGet();
+                return buildImages;
+            }
+        });
+        Evictor.start();
+        if (cachedImagesCount.get() > MAX_CACHED_IMAGES) {
+            evictOldestBuilds();
+        }
+    }
+
+    /**
+     * @return The number of docker images currently in the images cache of this JVM.
+     */
+    public static int getCachedImagesCount() {
+        return cachedImagesCount.get();
+    }
+
+    /**
+     * @return The number of docker images which were evicted from the images cache of this JVM, either because they
+     * expired or because the cache was full, without being collected by a build.
+     */
+    public static long getEvictedImagesCount() {
+        return evictedImagesCount.get();
+    }
+
+    /**
+     * Removes the expired images from the cache, for which build-info hasn't been published to Artifactory.
+     */
+    static void evictExpiredImages() {
+        for (Integer buildInfoId : images.keySet()) {
+            images.computeIfPresent(buildInfoId, new BiFunction<Integer, List<DockerImage>, List<DockerImage>>() {
+                public List<DockerImage> apply(Integer id, List<DockerImage> buildImages) {
+                    for (DockerImage image : buildImages) {
+                        if (image.isExpired() && buildImages.remove(image)) {
+                            onEvicted(1);
+                        }
+                    }
+                    return buildImages.isEmpty() ? null : buildImages;
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the images of the builds which registered their last image earliest, until the cache is within its cap.
+     * Builds without captured images are removed first. On the agents, these are mostly the copies of images which
+     * were registered on all the agents and were captured by another agent.
+     */
+    private static synchronized void evictOldestBuilds() {
+        if (cachedImagesCount.get() <= MAX_CACHED_IMAGES) {
+            return;
+        }
+        evictExpiredImages();
+        List<Map.Entry<Integer, List<DockerImage>>> entries = new ArrayList<Map.Entry<Integer, List<DockerImage>>>(images.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Integer, List<DockerImage>>>() {
+            public int compare(Map.Entry<Integer, List<DockerImage>> e1, Map.Entry<Integer, List<DockerImage>> e2) {
+                int captured = Boolean.compare(hasManifest(e1.getValue()), hasManifest(e2.getValue()));
+                if (captured != 0) {
+                    return captured;
+                }
+                return Long.compare(getLastCreatedTime(e1.getValue()), getLastCreatedTime(e2.getValue()));
+            }
+        });
+        for (Map.Entry<Integer, List<DockerImage>> entry : entries) {
+            if (cachedImagesCount.get() <= MAX_CACHED_IMAGES) {
+                break;
+            }
+            List<DockerImage> buildImages = images.remove(entry.getKey());
+            if (buildImages != null) {
+                onEvicted(buildImages.size());
+            }
+        }
+        logger.info("The docker images cache reached " + MAX_CACHED_IMAGES + " images. " + evictedImagesCount.get() +
+                " images were evicted so far.");
+    }
+
+    private static long getLastCreatedTime(List<DockerImage> buildImages) {
+        long createdTime = Long.MIN_VALUE;
+        for (DockerImage image : buildImages) {
+            createdTime = Math.max(createdTime, image.getCreatedTime());
+        }
+        return createdTime;
+    }
+
+    private static boolean hasManifest(List<DockerImage> buildImages) {
+        for (DockerImage image : buildImages) {
+            if (image.hasManifest()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void onEvicted(int count) {
+        cachedImagesCount.addAndGet(-count);
+        evictedImagesCount.addAndGet(count);
     }
 
     /**
@@ -84,15 +273,7 @@ public class DockerAgentUtils implements Serializable {
      * @return
      */
     public static List<DockerImage> getImagesByBuildId(int buildInfoId) {
-        List<DockerImage> list = new ArrayList<DockerImage>();
-        Iterator<DockerImage> it = images.iterator();
-        while (it.hasNext()) {
-            DockerImage image = it.next();
-            if (image.getBuildInfoId() == buildInfoId && image.hasManifest()) {
-                list.add(image);
-            }
-        }
-        return list;
+        return getImagesWithManifest(images.get(buildInfoId));
     }
 
     /**
@@ -104,20 +285,21 @@ public class DockerAgentUtils implements Serializable {
      * @return
      */
     public static List<DockerImage> getAndDiscardImagesByBuildId(int buildInfoId) {
+        List<DockerImage> buildImages = images.remove(buildInfoId);
+        if (buildImages != null) {
+            cachedImagesCount.addAndGet(-buildImages.size());
+        }
+        return getImagesWithManifest(buildImages);
+    }
+
+    private static List<DockerImage> getImagesWithManifest(List<DockerImage> buildImages) {
         List<DockerImage> list = new ArrayList<DockerImage>();
-        synchronized(images) {
-            Iterator<DockerImage> it = images.iterator();
-            while (it.hasNext()) {
-                DockerImage image = it.next();
-                if (image.getBuildInfoId() == buildInfoId) {
-                    if (image.hasManifest()) {
-                        list.add(image);
-                    }
-                    it.remove();
-                } else // Remove old images from the cache, for which build-info hasn't been published to Artifactory:
-                if (image.isExpired()) {
-                    it.remove();
-                }
+        if (buildImages == null) {
+            return list;
+        }
+        for (DockerImage image : buildImages) {
+            if (image.hasManifest()) {
+                list.add(image);
             }
         }
         return list;
@@ -138,26 +320,51 @@ public class DockerAgentUtils implements Serializable {
         // Collect images from the master:
         dockerImages.addAll(getAndDiscardImagesByBuildId(buildInfoId));
 
-        // Collect images from all the agents:
-        List<Node> nodes = Jenkins.getInstance().getNodes();
-        for (Node node : nodes) {
-            if (node == null || node.getChannel() == null) {
-                continue;
-            }
-            try {
-                List<DockerImage> partialDockerImages = node.getChannel().call(new MasterToSlaveCallable<List<DockerImage>, IOException>() {
+        // Collect images from the agents which captured them, or from all the agents if they are not known:
+        List<Node> allNodes = Jenkins.getInstance().getNodes();
+        List<Node> nodes = getCapturingNodes(buildInfoId);
+        Map<Node, List<DockerImage>> agentsImages = callOnNodes(nodes != null ? nodes : allNodes,
+                new MasterToSlaveCallable<List<DockerImage>, IOException>() {
                     public List<DockerImage> call() throws IOException {
                         List<DockerImage> dockerImages = new ArrayList<DockerImage>();
                         dockerImages.addAll(getAndDiscardImagesByBuildId(buildInfoId));
                         return dockerImages;
                     }
+                }, new JenkinsBuildInfoLog(listener), "collect docker images", null);
+        for (List<DockerImage> partialDockerImages : agentsImages.values()) {
+            dockerImages.addAll(partialDockerImages);
+        }
+        if (nodes != null) {
+            // The other agents hold copies of the registered images, which were not captured by them
+            List<Node> otherNodes = new ArrayList<Node>(allNodes);
+            otherNodes.removeAll(nodes);
+            discardImagesOnNodes(otherNodes, buildInfoId);
+        }
+        capturingNodes.invalidate(buildInfoId);
+        return dockerImages;
+    }
+
+    /**
+     * Discards the images of the build-info on the given nodes, without waiting for the nodes to respond.
+     */
+    private static void discardImagesOnNodes(Collection<Node> nodes, final int buildInfoId) {
+        for (Node node : nodes) {
+            VirtualChannel channel = node == null ? null : node.getChannel();
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.callAsync(new MasterToSlaveCallable<Boolean, IOException>() {
+                    public Boolean call() throws IOException {
+                        getAndDiscardImagesByBuildId(buildInfoId);
+                        return true;
+                    }
                 });
-                dockerImages.addAll(partialDockerImages);
             } catch (Exception e) {
-                listener.getLogger().println("Could not collect docker images from Jenkins node '" + node.getDisplayName() + "' due to: " + e.getMessage());
+                // The images expire on the node
+                logger.fine("Could not discard docker images on Jenkins node '" + node.getDisplayName() + "': " + e.getMessage());
             }
         }
-        return dockerImages;
     }
 
     /**
@@ -226,17 +433,29 @@ public class DockerAgentUtils implements Serializable {
      */
     public static boolean updateImageParentOnAgents(final JenkinsBuildInfoLog log, final String imageTag, final String host, final int buildInfoId) throws IOException, InterruptedException {
         boolean parentUpdated = updateImageParent(log, imageTag, host, buildInfoId);
-        List<Node> nodes = Jenkins.getInstance().getNodes();
-        for (Node node : nodes) {
-            if (node == null || node.getChannel() == null) {
-                continue;
+        // Every pushed image is checked on all the agents, since it may be captured by another agent than the previous ones
+        List<Node> failedNodes = new ArrayList<Node>();
+        Map<Node, Boolean> nodesUpdated = callOnNodes(Jenkins.getInstance().getNodes(), new MasterToSlaveCallable<Boolean, IOException>() {
+            public Boolean call() throws IOException {
+                return updateImageParent(log, imageTag, host, buildInfoId);
+            }
+        }, log, "update the parent of docker image " + imageTag, failedNodes);
+        // The agents which captured the image, so that collecting the images of this build-info calls only them
+        CapturingNodes buildCapturingNodes = new CapturingNodes();
+        CapturingNodes existing = capturingNodes.asMap().putIfAbsent(buildInfoId, buildCapturingNodes);
+        if (existing != null) {
+            buildCapturingNodes = existing;
+        }
+        for (Map.Entry<Node, Boolean> nodeUpdated : nodesUpdated.entrySet()) {
+            if (nodeUpdated.getValue()) {
+                buildCapturingNodes.add(nodeUpdated.getKey().getNodeName());
+                parentUpdated = true;
             }
-            boolean parentNodeUpdated = node.getChannel().call(new MasterToSlaveCallable<Boolean, IOException>() {
-                public Boolean call() throws IOException {
-                    return updateImageParent(log, imageTag, host, buildInfoId);
-                }
-            });
-            parentUpdated = parentUpdated ? parentUpdated : parentNodeUpdated;
+        }
+        // A node which didn't respond might have captured the image, and an image which wasn't captured yet might
+        // be captured later by any node. In both cases, the images are collected from all the nodes.
+        if (!failedNodes.isEmpty() || !parentUpdated) {
+            buildCapturingNodes.setIncomplete();
         }
         return parentUpdated;
     }
@@ -295,4 +514,50 @@ public class DockerAgentUtils implements Serializable {
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * The names of the nodes which captured images of a build-info. Incomplete if other nodes might have captured
+     * images of the build-info as well.
+     */
+    private static class CapturingNodes {
+        private final Set<String> nodeNames = Sets.newConcurrentHashSet();
+        private volatile boolean complete = true;
+
+        void add(String nodeName) {
+            nodeNames.add(nodeName);
+        }
+
+        Set<String> getNodeNames() {
+            return nodeNames;
+        }
+
+        void setIncomplete() {
+            complete = false;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Periodically removes the expired images from the images cache. Started by the first registered image,
+     * so that JVMs which never capture docker images don't run it.
+     */
+    private static class Evictor {
+        private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("artifactory-docker-images-evictor").setDaemon(true).build());
+
+        static {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    evictExpiredImages();
+                }
+            }, EVICTION_INTERVAL_MINUTES, EVICTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+
+        static void start() {
+            // Loading the class schedules the eviction
+        }
+    }
+}
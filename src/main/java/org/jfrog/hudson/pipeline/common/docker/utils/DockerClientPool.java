@@ -0,0 +1,135 @@
+package org.jfrog.hudson.pipeline.common.docker.utils;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.netty.NettyDockerCmdExecFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of docker clients per docker daemon host, shared by all the builds running on the agent.
+ * Reusing a client saves setting up its connection to the daemon on every docker command.
+ * A client which was idle for a while is pinged before it is reused, and a client which was idle for too long is closed.
+ */
+public class DockerClientPool {
+    static final int MAX_IDLE_CLIENTS_PER_HOST = 4;
+    static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long HEALTH_CHECK_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final String DEFAULT_HOST = "";
+
+    private static final Map<String, Deque<PooledClient>> idleClients = new ConcurrentHashMap<String, Deque<PooledClient>>();
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("artifactory-docker-client-pool").setDaemon(true).build());
+
+    static {
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                closeIdleClients();
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param host The docker daemon host, or empty for the default host.
+     * @return An idle client of the host, or a new client if there's no healthy idle client.
+     */
+    public static DockerClient borrow(String host) {
+        Deque<PooledClient> clients = getIdleClients(host);
+        PooledClient pooledClient;
+        while ((pooledClient = clients.pollFirst()) != null) {
+            long idleTime = System.currentTimeMillis() - pooledClient.lastUsed;
+            if (idleTime < IDLE_TIMEOUT_MILLIS && (idleTime < HEALTH_CHECK_AFTER_MILLIS || isHealthy(pooledClient.client))) {
+                return pooledClient.client;
+            }
+            closeQuietly(pooledClient.client);
+        }
+        return createClient(host);
+    }
+
+    /**
+     * Returns a client to the pool.
+     *
+     * @param healthy False if the command executed by the client failed. Such a client is closed instead of reused.
+     */
+    public static void release(String host, DockerClient client, boolean healthy) {
+        if (client == null) {
+            return;
+        }
+        Deque<PooledClient> clients = getIdleClients(host);
+        if (!healthy || !clients.offerFirst(new PooledClient(client))) {
+            closeQuietly(client);
+        }
+    }
+
+    static void closeIdleClients() {
+        for (Deque<PooledClient> clients : idleClients.values()) {
+            Iterator<PooledClient> it = clients.iterator();
+            while (it.hasNext()) {
+                PooledClient pooledClient = it.next();
+                if (System.currentTimeMillis() - pooledClient.lastUsed >= IDLE_TIMEOUT_MILLIS && clients.remove(pooledClient)) {
+                    closeQuietly(pooledClient.client);
+                }
+            }
+        }
+    }
+
+    private static Deque<PooledClient> getIdleClients(String host) {
+        String key = StringUtils.defaultString(host, DEFAULT_HOST);
+        Deque<PooledClient> clients = idleClients.get(key);
+        if (clients == null) {
+            idleClients.putIfAbsent(key, new LinkedBlockingDeque<PooledClient>(MAX_IDLE_CLIENTS_PER_HOST));
+            clients = idleClients.get(key);
+        }
+        return clients;
+    }
+
+    private static boolean isHealthy(DockerClient client) {
+        try {
+            client.pingCmd().exec();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static DockerClient createClient(String host) {
+        NettyDockerCmdExecFactory nettyDockerCmdExecFactory = new NettyDockerCmdExecFactory();
+        if (StringUtils.isEmpty(host)) {
+            return DockerClientBuilder.getInstance().withDockerCmdExecFactory(nettyDockerCmdExecFactory).build();
+        }
+
+        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(host)
+                .build();
+        return DockerClientBuilder.getInstance(config).withDockerCmdExecFactory(nettyDockerCmdExecFactory).build();
+    }
+
+    private static void closeQuietly(DockerClient dockerClient) {
+        try {
+            dockerClient.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private static class PooledClient {
+        private final DockerClient client;
+        private final long lastUsed = System.currentTimeMillis();
+
+        PooledClient(DockerClient client) {
+            this.client = client;
+        }
+    }
+}
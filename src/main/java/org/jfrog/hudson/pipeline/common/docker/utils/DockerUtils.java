@@ -3,12 +3,8 @@ package org.jfrog.hudson.pipeline.common.docker.utils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.model.AuthConfig;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.command.PullImageResultCallback;
 import com.github.dockerjava.core.command.PushImageResultCallback;
-import com.github.dockerjava.netty.NettyDockerCmdExecFactory;
 import com.google.common.base.Charsets;
 import com.google.common.hash.Hashing;
 import org.apache.commons.lang.StringUtils;
@@ -32,12 +28,14 @@ public class DockerUtils implements Serializable {
      * @return
      */
     public static String getImageIdFromTag(String imageTag, String host) throws IOException {
-        DockerClient dockerClient = null;
+        DockerClient dockerClient = DockerClientPool.borrow(host);
+        boolean healthy = false;
         try {
-            dockerClient = getDockerClient(host);
-            return dockerClient.inspectImageCmd(imageTag).exec().getId();
+            String result = dockerClient.inspectImageCmd(imageTag).exec().getId();
+            healthy = true;
+            return result;
         } finally {
-            closeQuietly(dockerClient);
+            DockerClientPool.release(host, dockerClient, healthy);
         }
     }
 
@@ -54,12 +52,13 @@ public class DockerUtils implements Serializable {
         authConfig.withUsername(username);
         authConfig.withPassword(password);
 
-        DockerClient dockerClient = null;
+        DockerClient dockerClient = DockerClientPool.borrow(host);
+        boolean healthy = false;
         try {
-            dockerClient = getDockerClient(host);
             dockerClient.pushImageCmd(imageTag).withAuthConfig(authConfig).exec(new PushImageResultCallback()).awaitSuccess();
+            healthy = true;
         } finally {
-            closeQuietly(dockerClient);
+            DockerClientPool.release(host, dockerClient, healthy);
         }
     }
 
@@ -76,12 +75,13 @@ public class DockerUtils implements Serializable {
         authConfig.withUsername(username);
         authConfig.withPassword(password);
 
-        DockerClient dockerClient = null;
+        DockerClient dockerClient = DockerClientPool.borrow(host);
+        boolean healthy = false;
         try {
-            dockerClient = getDockerClient(host);
             dockerClient.pullImageCmd(imageTag).withAuthConfig(authConfig).exec(new PullImageResultCallback()).awaitSuccess();
+            healthy = true;
         } finally {
-            closeQuietly(dockerClient);
+            DockerClientPool.release(host, dockerClient, healthy);
         }
     }
 
@@ -93,12 +93,14 @@ public class DockerUtils implements Serializable {
      * @return
      */
     public static String getParentId(String digest, String host) throws IOException {
-        DockerClient dockerClient = null;
+        DockerClient dockerClient = DockerClientPool.borrow(host);
+        boolean healthy = false;
         try {
-            dockerClient = getDockerClient(host);
-            return dockerClient.inspectImageCmd(digest).exec().getParent();
+            String result = dockerClient.inspectImageCmd(digest).exec().getParent();
+            healthy = true;
+            return result;
         } finally {
-            closeQuietly(dockerClient);
+            DockerClientPool.release(host, dockerClient, healthy);
         }
     }
 
@@ -317,28 +319,4 @@ public class DockerUtils implements Serializable {
         }
         return layersNum;
     }
-
-    private static DockerClient getDockerClient(String host) {
-        NettyDockerCmdExecFactory nettyDockerCmdExecFactory;
-
-        nettyDockerCmdExecFactory = new NettyDockerCmdExecFactory();
-        if (StringUtils.isEmpty(host)) {
-            return DockerClientBuilder.getInstance().withDockerCmdExecFactory(nettyDockerCmdExecFactory).build();
-        }
-
-        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-                .withDockerHost(host)
-                .build();
-        return DockerClientBuilder.getInstance(config).withDockerCmdExecFactory(nettyDockerCmdExecFactory).build();
-    }
-
-    private static void closeQuietly(DockerClient dockerClient) {
-        if (dockerClient != null) {
-            try {
-                dockerClient.close();
-            } catch (IOException e) {
-                // Ignore
-            }
-        }
-    }
 }
@@ -57,5 +57,6 @@ public class GetArtifactoryServerExecutor implements Executor {
         artifactoryServer.setBypassProxy(server.isBypassProxy());
         artifactoryServer.getConnection().setRetry(server.getConnectionRetry());
         artifactoryServer.getConnection().setTimeout(server.getTimeout());
+        artifactoryServer.setDeploymentThreads(server.getDeploymentThreads());
     }
 }
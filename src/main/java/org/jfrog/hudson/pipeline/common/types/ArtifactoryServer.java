@@ -37,6 +37,7 @@ public class ArtifactoryServer implements Serializable {
     private transient CpsScript cpsScript;
     private boolean usesCredentialsId;
     private Connection connection = new Connection();
+    private int deploymentThreads;
 
     public ArtifactoryServer() {
     }
@@ -274,4 +275,14 @@ public class ArtifactoryServer implements Serializable {
         return connection;
     }
 
+    @Whitelisted
+    public int getDeploymentThreads() {
+        return deploymentThreads;
+    }
+
+    @Whitelisted
+    public void setDeploymentThreads(int deploymentThreads) {
+        this.deploymentThreads = deploymentThreads;
+    }
+
 }
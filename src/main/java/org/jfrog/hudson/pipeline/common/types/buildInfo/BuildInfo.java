@@ -1,6 +1,5 @@
 package org.jfrog.hudson.pipeline.common.types.buildInfo;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ArrayListMultimap;
 import hudson.FilePath;
 import hudson.model.Run;
@@ -20,6 +19,7 @@ import org.jfrog.build.extractor.clientConfiguration.deploy.DeployableArtifactsU
 import org.jfrog.hudson.pipeline.common.ArtifactoryConfigurator;
 import org.jfrog.hudson.pipeline.common.BuildInfoDeployer;
 import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
+import org.jfrog.hudson.util.JsonMappers;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,6 +32,7 @@ import java.util.*;
  */
 public class BuildInfo implements Serializable {
     public static final long serialVersionUID = 1L;
+    static final String SIDE_FILES_DIR_NAME = "artifactory-build-info";
 
     private String name; // Build name
     private String number; // Build number
@@ -42,8 +43,16 @@ public class BuildInfo implements Serializable {
     // The candidates artifacts to be deployed in the 'deployArtifacts' step.
     private List<DeployDetails> deployableArtifacts = Collections.synchronizedList(new ArrayList<DeployDetails>());
     private List<Dependency> publishedDependencies = Collections.synchronizedList(new ArrayList<Dependency>());
+    // When the build directory is known, the deployed artifacts and published dependencies are appended to these files
+    // instead of the lists above, to keep them out of the pipeline program state.
+    private BuildInfoSideFile<Artifact> deployedArtifactsFile;
+    private BuildInfoSideFile<Dependency> publishedDependenciesFile;
 
     private List<Module> modules = Collections.synchronizedList(new ArrayList<Module>());
+    // The first module of each id, covering the first 'indexedModules' modules of the list.
+    // Transient and rebuilt on demand, since the list may be replaced or appended to from outside this class.
+    private transient Map<String, Module> modulesIndex;
+    private transient int indexedModules;
     private Env env = new Env();
     private String agentName;
 
@@ -59,6 +68,10 @@ public class BuildInfo implements Serializable {
         this();
         this.name = BuildUniqueIdentifierHelper.getBuildName(build);
         this.number = BuildUniqueIdentifierHelper.getBuildNumber(build);
+        File sideFilesDir = new File(build.getRootDir(), SIDE_FILES_DIR_NAME);
+        String sideFilesPrefix = UUID.randomUUID().toString();
+        this.deployedArtifactsFile = new BuildInfoSideFile<Artifact>(new File(sideFilesDir, sideFilesPrefix + "-artifacts.json"), Artifact.class);
+        this.publishedDependenciesFile = new BuildInfoSideFile<Dependency>(new File(sideFilesDir, sideFilesPrefix + "-dependencies.json"), Dependency.class);
     }
 
     @Whitelisted
@@ -92,11 +105,11 @@ public class BuildInfo implements Serializable {
     }
 
     @Whitelisted
-    public void append(BuildInfo other) {
+    public void append(BuildInfo other) throws IOException {
         this.modules.addAll(other.modules);
-        this.deployedArtifacts.addAll(other.deployedArtifacts);
+        appendDeployedArtifacts(other.getDeployedArtifacts());
         this.deployableArtifacts.addAll(other.deployableArtifacts);
-        this.publishedDependencies.addAll(other.publishedDependencies);
+        appendPublishedDependencies(other.getPublishedDependencies());
         this.buildDependencies.addAll(other.buildDependencies);
         this.dockerBuildInfoHelper.append(other.dockerBuildInfoHelper);
 
@@ -146,15 +159,11 @@ public class BuildInfo implements Serializable {
             throw new IllegalArgumentException("Only the following arguments are allowed: " + keysAsList.toString());
         }
 
-        final ObjectMapper mapper = new ObjectMapper();
-        this.retention = mapper.convertValue(retentionArguments, BuildRetention.class);
+        this.retention = JsonMappers.strictMapper().convertValue(retentionArguments, BuildRetention.class);
     }
 
-    protected void appendDeployedArtifacts(List<Artifact> artifacts) {
-        if (artifacts == null) {
-            return;
-        }
-        deployedArtifacts.addAll(artifacts);
+    protected void appendDeployedArtifacts(List<Artifact> artifacts) throws IOException {
+        appendEntries(deployedArtifacts, deployedArtifactsFile, artifacts);
     }
 
     public List<DeployDetails> getDeployableArtifacts() {
@@ -181,11 +190,8 @@ public class BuildInfo implements Serializable {
         buildDependencies.addAll(dependencies);
     }
 
-    protected void appendPublishedDependencies(List<Dependency> dependencies) {
-        if (dependencies == null) {
-            return;
-        }
-        publishedDependencies.addAll(dependencies);
+    protected void appendPublishedDependencies(List<Dependency> dependencies) throws IOException {
+        appendEntries(publishedDependencies, publishedDependenciesFile, dependencies);
     }
 
     protected List<BuildDependency> getBuildDependencies() {
@@ -210,15 +216,17 @@ public class BuildInfo implements Serializable {
         modules.addAll(dockerModules);
     }
 
-    private void addDefaultModuleToModules(String moduleId) {
-        if (deployedArtifacts.isEmpty() && publishedDependencies.isEmpty()) {
+    private void addDefaultModuleToModules(String moduleId) throws IOException {
+        if (deployedArtifacts.isEmpty() && publishedDependencies.isEmpty() &&
+                isEmpty(deployedArtifactsFile) && isEmpty(publishedDependenciesFile)) {
             return;
         }
 
+        // The published build-info is sent as a single document, so the module holds all of its entries
         ModuleBuilder moduleBuilder = new ModuleBuilder()
                 .id(moduleId)
-                .artifacts(deployedArtifacts)
-                .dependencies(publishedDependencies);
+                .artifacts(readEntries(deployedArtifacts, deployedArtifactsFile))
+                .dependencies(readEntries(publishedDependencies, publishedDependenciesFile));
         modules.add(moduleBuilder.build());
     }
 
@@ -242,7 +250,7 @@ public class BuildInfo implements Serializable {
 
     @SuppressWarnings("unused") // For serialization/deserialization
     public List<Artifact> getDeployedArtifacts() {
-        return deployedArtifacts;
+        return getEntries(deployedArtifacts, deployedArtifactsFile);
     }
 
     @SuppressWarnings("unused") // For serialization/deserialization
@@ -257,7 +265,7 @@ public class BuildInfo implements Serializable {
 
     @SuppressWarnings("unused") // For serialization/deserialization
     public List<Dependency> getPublishedDependencies() {
-        return publishedDependencies;
+        return getEntries(publishedDependencies, publishedDependenciesFile);
     }
 
     @SuppressWarnings("unused") // For serialization/deserialization
@@ -268,6 +276,7 @@ public class BuildInfo implements Serializable {
     @SuppressWarnings("unused") // For serialization/deserialization
     public void setModules(List<Module> modules) {
         this.modules = modules;
+        this.modulesIndex = null;
     }
 
     @SuppressWarnings("unused") // For serialization/deserialization
@@ -275,20 +284,74 @@ public class BuildInfo implements Serializable {
         this.env = env;
     }
 
+    /**
+     * Appends the entries to the side file, or to the list if there's no side file.
+     */
+    private static <T> void appendEntries(List<T> list, BuildInfoSideFile<T> sideFile, List<T> entries) throws IOException {
+        if (entries == null) {
+            return;
+        }
+        if (sideFile == null) {
+            list.addAll(entries);
+        } else {
+            sideFile.append(entries);
+        }
+    }
+
+    /**
+     * @return The list if there's no side file, or else a read-only view which streams the side file entries.
+     * The list may hold entries even if there's a side file, if the build info was created by an older version of the plugin.
+     */
+    private static <T> List<T> getEntries(List<T> list, BuildInfoSideFile<T> sideFile) {
+        return sideFile == null ? list : sideFile.asList(list);
+    }
+
+    /**
+     * @return A copy of the list and the side file entries.
+     */
+    private static <T> List<T> readEntries(List<T> list, BuildInfoSideFile<T> sideFile) throws IOException {
+        List<T> entries = new ArrayList<T>(list);
+        if (sideFile != null) {
+            entries.addAll(sideFile.read());
+        }
+        return entries;
+    }
+
+    private static boolean isEmpty(BuildInfoSideFile<?> sideFile) {
+        return sideFile == null || sideFile.size() == 0;
+    }
+
     private void addModule(Module other) {
         List<Module> modules = getModules();
-        Module currentModule = modules.stream()
-                // Check if there's already a module with the same name.
-                .filter(module -> StringUtils.equals(module.getId(), other.getId()))
-                .findAny()
-                .orElse(null);
-        if (currentModule == null) {
-            // Append new module.
-            modules.add(other);
-        } else {
-            // Append the other module into the existing module with the same name.
-            currentModule.append(other);
+        synchronized (modules) {
+            // Check if there's already a module with the same name.
+            Module currentModule = getIndexedModule(modules, other.getId());
+            if (currentModule == null) {
+                // Append new module.
+                modules.add(other);
+            } else {
+                // Append the other module into the existing module with the same name.
+                currentModule.append(other);
+            }
+        }
+    }
+
+    /**
+     * Indexes the modules added to the list since the last lookup, and returns the first module with the given id.
+     * Must be called while holding the modules list monitor.
+     */
+    private Module getIndexedModule(List<Module> modules, String id) {
+        if (modulesIndex == null || indexedModules > modules.size()) {
+            modulesIndex = new HashMap<String, Module>();
+            indexedModules = 0;
+        }
+        for (; indexedModules < modules.size(); indexedModules++) {
+            Module module = modules.get(indexedModules);
+            if (!modulesIndex.containsKey(module.getId())) {
+                modulesIndex.put(module.getId(), module);
+            }
         }
+        return modulesIndex.get(id);
     }
 
     public static class DeployPathsAndPropsCallable extends MasterToSlaveFileCallable<List<DeployDetails>> {
@@ -32,7 +32,7 @@ public class BuildInfoAccessor {
         this.buildInfo = buildInfo;
     }
 
-    public void appendPublishedDependencies(List<Dependency> resolvedDependencies) {
+    public void appendPublishedDependencies(List<Dependency> resolvedDependencies) throws IOException {
         this.buildInfo.appendPublishedDependencies(resolvedDependencies);
     }
 
@@ -71,7 +71,7 @@ public class BuildInfoAccessor {
         }
     }
 
-    public void appendDeployedArtifacts(List<Artifact> artifacts) {
+    public void appendDeployedArtifacts(List<Artifact> artifacts) throws IOException {
         this.buildInfo.appendDeployedArtifacts(artifacts);
     }
 
@@ -0,0 +1,179 @@
+package org.jfrog.hudson.pipeline.common.types.buildInfo;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.jfrog.hudson.util.JsonMappers;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Append-only storage of a build-info collection in a file under the build directory.
+ * Keeps large collections out of the pipeline program state, which is rewritten on every CPS checkpoint.
+ * Each entry is stored as a single JSON line. Only the file path and the committed entries count and length are serialized,
+ * so entries appended after the last checkpoint of a resumed pipeline are dropped, the same as they would be in memory.
+ * The entries are streamed from the file when they are read, see {@link #asList(List)}.
+ */
+public class BuildInfoSideFile<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // The number of entries read by each access to the file while streaming the entries
+    private static final int READ_BATCH_SIZE = 1000;
+
+    private final String path;
+    private final Class<T> type;
+    private int size;
+    private long length;
+
+    BuildInfoSideFile(File file, Class<T> type) {
+        this.path = file.getAbsolutePath();
+        this.type = type;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void append(List<T> entries) throws IOException {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        File file = new File(path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory " + file.getParent());
+        }
+        ObjectWriter writer = JsonMappers.writer(type);
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            // Drop anything written after the last committed append, such as a partially written batch.
+            channel.truncate(length);
+            channel.position(length);
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            for (T entry : entries) {
+                out.write(writer.writeValueAsString(entry));
+                out.write('\n');
+            }
+            out.flush();
+            length = channel.position();
+        }
+        size += entries.size();
+    }
+
+    /**
+     * @return The committed entries, in the order they were appended.
+     */
+    public List<T> read() throws IOException {
+        List<T> entries = new ArrayList<T>(size());
+        try {
+            entries.addAll(asList(Collections.<T>emptyList()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a read-only view of the given entries followed by the entries committed to the file so far.
+     * The file entries are streamed in batches while the view is iterated, so they are never all held in memory,
+     * and no file is left open if the iteration stops early. Accessing an entry by its index streams the entries before it.
+     *
+     * @param head Entries which precede the file entries.
+     * @throws UncheckedIOException While iterating, if the file can't be read.
+     */
+    public List<T> asList(final List<T> head) {
+        final int committedSize;
+        final long committedLength;
+        synchronized (this) {
+            committedSize = size;
+            committedLength = length;
+        }
+        return new AbstractList<T>() {
+            @Override
+            public int size() {
+                return head.size() + committedSize;
+            }
+
+            @Override
+            public T get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                }
+                Iterator<T> iterator = iterator();
+                for (int i = 0; i < index; i++) {
+                    iterator.next();
+                }
+                return iterator.next();
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return Iterators.concat(head.iterator(), new EntriesIterator(committedSize, committedLength));
+            }
+        };
+    }
+
+    /**
+     * Reads the entries in batches. Each batch opens the file, reads from where the previous batch stopped, and closes it.
+     */
+    private class EntriesIterator extends AbstractIterator<T> {
+        private final int committedSize;
+        private final long committedLength;
+        private final ObjectReader reader = JsonMappers.reader(type);
+        private final Queue<T> batch = new ArrayDeque<T>();
+        private int read;
+        private long position;
+
+        EntriesIterator(int committedSize, long committedLength) {
+            this.committedSize = committedSize;
+            this.committedLength = committedLength;
+        }
+
+        @Override
+        protected T computeNext() {
+            if (batch.isEmpty()) {
+                if (read == committedSize) {
+                    return endOfData();
+                }
+                try {
+                    readBatch();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed reading " + path, e);
+                }
+            }
+            return batch.poll();
+        }
+
+        private void readBatch() throws IOException {
+            try (FileInputStream fileIn = new FileInputStream(path)) {
+                fileIn.getChannel().position(position);
+                InputStream in = new BufferedInputStream(new BoundedInputStream(fileIn, committedLength - position));
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                int b;
+                while (batch.size() < READ_BATCH_SIZE && read < committedSize && (b = in.read()) != -1) {
+                    position++;
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    batch.add(reader.<T>readValue(new String(line.toByteArray(), StandardCharsets.UTF_8)));
+                    line.reset();
+                    read++;
+                }
+            }
+            if (batch.isEmpty()) {
+                throw new EOFException(path + " has less than the " + committedSize + " committed entries");
+            }
+        }
+    }
+}
@@ -3,9 +3,14 @@ package org.jfrog.hudson.pipeline.common.types.buildInfo;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import org.jfrog.build.api.Module;
+import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryBuildInfoClient;
+import org.jfrog.build.extractor.clientConfiguration.client.ArtifactoryDependenciesClient;
+import org.jfrog.hudson.ArtifactoryServer;
 import org.jfrog.hudson.pipeline.common.ArtifactoryConfigurator;
 import org.jfrog.hudson.pipeline.common.docker.DockerImage;
+import org.jfrog.hudson.pipeline.common.docker.DockerLayersTagger;
 import org.jfrog.hudson.pipeline.common.docker.utils.DockerAgentUtils;
+import org.jfrog.hudson.util.FailFastExecutor;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -16,6 +21,9 @@ import java.util.List;
  * Created by romang on 7/28/16.
  */
 public class DockerBuildInfoHelper implements Serializable {
+    // Maximum number of images whose modules are generated concurrently
+    private static final int MAX_THREADS = 4;
+    private static final String THREAD_NAME_FORMAT = "artifactory-docker-modules-%d";
 
     private BuildInfo buildInfo;
     private List<Integer> aggregatedBuildInfoIds = new ArrayList<Integer>();
@@ -32,14 +40,73 @@ public class DockerBuildInfoHelper implements Serializable {
         }
 
         String timestamp = Long.toString(buildInfo.getStartDate().getTime());
-        ArrayList<Module> modules = new ArrayList<Module>();
-        for (DockerImage dockerImage : dockerImages) {
-            modules.add(dockerImage.generateBuildInfoModule(build, listener, config, buildInfo.getName(), buildInfo.getNumber(), timestamp));
+        if (dockerImages.size() <= 1) {
+            ArrayList<Module> modules = new ArrayList<Module>();
+            for (DockerImage dockerImage : dockerImages) {
+                modules.add(dockerImage.generateBuildInfoModule(build, listener, config, buildInfo.getName(), buildInfo.getNumber(), timestamp));
+            }
+            return modules;
+        }
+        return generateBuildInfoModulesConcurrently(build, listener, config, dockerImages, timestamp);
+    }
+
+    /**
+     * Generates the modules of the images using a bounded pool of workers. Each worker owns its clients and reuses
+     * them for all the images it handles. The workers share one layers tagger, which bounds the tagging threads of all
+     * the images together. The modules are returned in the order of the images.
+     * Once an image fails, no new images are started.
+     */
+    private List<Module> generateBuildInfoModulesConcurrently(final Run build, final TaskListener listener, final ArtifactoryConfigurator config,
+                                                              List<DockerImage> dockerImages, final String timestamp) throws IOException, InterruptedException {
+        final DockerLayersTagger layersTagger = DockerImage.createLayersTagger(build, listener, config, config.getArtifactoryServer());
+        FailFastExecutor<DockerImage, Module, ModuleClients> executor =
+                new FailFastExecutor<DockerImage, Module, ModuleClients>(MAX_THREADS, THREAD_NAME_FORMAT) {
+                    @Override
+                    protected ModuleClients createWorker() {
+                        ArtifactoryServer server = config.getArtifactoryServer();
+                        ArtifactoryDependenciesClient dependenciesClient = DockerImage.createDependenciesClient(build, listener, server);
+                        try {
+                            return new ModuleClients(dependenciesClient, DockerImage.createPropertyChangeClient(build, config, server));
+                        } catch (RuntimeException e) {
+                            dependenciesClient.close();
+                            throw e;
+                        }
+                    }
+
+                    @Override
+                    protected Module process(ModuleClients clients, DockerImage dockerImage) throws IOException {
+                        return dockerImage.generateBuildInfoModule(build, listener, config, buildInfo.getName(), buildInfo.getNumber(),
+                                timestamp, clients.dependenciesClient, clients.propertyChangeClient, layersTagger);
+                    }
+                };
+        // Fail as the sequential generation does, with the exception of the first failed image
+        executor.setRethrowFirstFailure(true);
+        try {
+            return new ArrayList<Module>(executor.execute(dockerImages));
+        } finally {
+            layersTagger.close();
         }
-        return modules;
     }
 
     public void append(DockerBuildInfoHelper other) {
         aggregatedBuildInfoIds.add(other.buildInfo.hashCode());
     }
+
+    /**
+     * The clients of a modules worker, reused for all the images it handles.
+     */
+    private static class ModuleClients implements AutoCloseable {
+        private final ArtifactoryDependenciesClient dependenciesClient;
+        private final ArtifactoryBuildInfoClient propertyChangeClient;
+
+        ModuleClients(ArtifactoryDependenciesClient dependenciesClient, ArtifactoryBuildInfoClient propertyChangeClient) {
+            this.dependenciesClient = dependenciesClient;
+            this.propertyChangeClient = propertyChangeClient;
+        }
+
+        public void close() {
+            dependenciesClient.close();
+            propertyChangeClient.close();
+        }
+    }
 }
@@ -10,7 +10,6 @@ import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
 import org.jenkinsci.plugins.workflow.cps.CpsScript;
-import org.jfrog.build.api.util.FileChecksumCalculator;
 import org.jfrog.build.extractor.clientConfiguration.PatternMatcher;
 import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
 import org.jfrog.hudson.CredentialsConfig;
@@ -22,15 +21,16 @@ import org.jfrog.hudson.pipeline.common.types.ArtifactoryServer;
 import org.jfrog.hudson.pipeline.common.types.Filter;
 import org.jfrog.hudson.pipeline.common.types.buildInfo.BuildInfo;
 import org.jfrog.hudson.pipeline.common.types.buildInfo.Env;
+import org.jfrog.hudson.util.ChecksumCache;
 import org.jfrog.hudson.util.Credentials;
 import org.jfrog.hudson.util.IncludesExcludes;
+import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 import org.jfrog.hudson.util.RepositoriesUtils;
 import org.jfrog.hudson.util.publisher.PublisherContext;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -42,6 +42,7 @@ public abstract class Deployer implements DeployerOverrider, Serializable {
     private ArrayListMultimap<String, String> properties = ArrayListMultimap.create();
     private Filter artifactDeploymentPatterns = new Filter();
     private String customBuildName = "";
+    private int threads;
     private transient CpsScript cpsScript;
 
     protected transient ArtifactoryServer server;
@@ -88,6 +89,17 @@ public abstract class Deployer implements DeployerOverrider, Serializable {
         return this;
     }
 
+    @Whitelisted
+    public int getThreads() {
+        return threads;
+    }
+
+    @Whitelisted
+    public Deployer setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
     public ArrayListMultimap<String, String> getProperties() {
         return this.properties;
     }
@@ -181,9 +193,11 @@ public abstract class Deployer implements DeployerOverrider, Serializable {
             org.jfrog.hudson.ArtifactoryServer artifactoryServer = Utils.prepareArtifactoryServer(null, server);
             Credentials credentials = getDeployerCredentialsConfig().getCredentials(null);
             org.jfrog.build.client.ProxyConfiguration proxy = RepositoriesUtils.createProxyConfiguration(Jenkins.getInstance().proxy);
-            Set<DeployDetails> deploySet = ws.act(new DeployDetailsCallable(buildInfo.getDeployableArtifacts(), listener, this));
+            Set<DeployDetails> deploySet = ws.act(new DeployDetailsCallable(buildInfo.getDeployableArtifacts(), listener, this,
+                    ChecksumCache.getCachePath(ws)));
             if (deploySet != null && deploySet.size() > 0) {
-                ws.act(new GenericArtifactsDeployer.FilesDeployerCallable(listener, deploySet, artifactoryServer, credentials, proxy));
+                ws.act(new GenericArtifactsDeployer.FilesDeployerCallable(listener, deploySet, artifactoryServer, credentials, proxy,
+                        artifactoryServer.getDeploymentThreads(threads)).setChecksumCachePath(ChecksumCache.getCachePath(ws)));
             } else if (deploySet == null) {
                 throw new RuntimeException("Deployment failed");
             }
@@ -198,43 +212,49 @@ public abstract class Deployer implements DeployerOverrider, Serializable {
         private List<DeployDetails> deployableArtifactsPaths;
         private TaskListener listener;
         private Deployer deployer;
+        private String checksumCachePath;
 
-        DeployDetailsCallable(List<DeployDetails> deployableArtifactsPaths, TaskListener listener, Deployer deployer) {
+        DeployDetailsCallable(List<DeployDetails> deployableArtifactsPaths, TaskListener listener, Deployer deployer,
+                              String checksumCachePath) {
             this.deployableArtifactsPaths = deployableArtifactsPaths;
             this.listener = listener;
             this.deployer = deployer;
+            this.checksumCachePath = checksumCachePath;
         }
 
         public Set<DeployDetails> invoke(File file, VirtualChannel virtualChannel) throws IOException {
             boolean isSuccess = true;
             Set<DeployDetails> results = Sets.newLinkedHashSet();
-            try {
+            try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, new JenkinsBuildInfoLog(listener))) {
                 for (DeployDetails artifact : deployableArtifactsPaths) {
                     String artifactPath = artifact.getArtifactPath();
                     if (PatternMatcher.pathConflicts(artifactPath, deployer.getArtifactDeploymentPatterns().getPatternFilter())) {
                         listener.getLogger().println("Artifactory Deployer: Skipping the deployment of '" + artifactPath + "' due to the defined include-exclude patterns.");
                         continue;
                     }
-                    Map<String, String> checksums = FileChecksumCalculator.calculateChecksums(artifact.getFile(), SHA1, MD5);
-                    if (!checksums.get(SHA1).equals(artifact.getSha1())) {
+                    // Files without cached checksums are verified against the expected SHA1 while they are uploaded
+                    Map<String, String> checksums = checksumCache.getCachedChecksums(artifact.getFile());
+                    if (checksums != null && !checksums.get(SHA1).equals(artifact.getSha1())) {
                         listener.error("SHA1 mismatch at '" + artifactPath + "' expected: " + artifact.getSha1() + ", got " + checksums.get(SHA1)
                                 + ". Make sure that the same artifacts were not built more than once.");
                         isSuccess = false;
                     } else {
-                        DeployDetails.Builder builder = new DeployDetails.Builder()
-                                .file(artifact.getFile())
-                                .artifactPath(artifactPath)
-                                .targetRepository(deployer.getTargetRepository(artifactPath))
-                                .md5(checksums.get(MD5)).sha1(artifact.getSha1())
-                                .addProperties(artifact.getProperties()).addProperties(deployer.getProperties());
-                        results.add(builder.build());
+                        results.add(createDeployDetails(artifact, artifactPath, checksums != null ? checksums.get(MD5) : null));
                     }
                 }
-            } catch (NoSuchAlgorithmException e) {
-                listener.error("Could not find checksum algorithm for " + SHA1 + " or " + MD5);
-                isSuccess = false;
+                checksumCache.logSummary();
             }
             return isSuccess ? results : null;
         }
+
+        private DeployDetails createDeployDetails(DeployDetails artifact, String artifactPath, String md5) {
+            return new DeployDetails.Builder()
+                    .file(artifact.getFile())
+                    .artifactPath(artifactPath)
+                    .targetRepository(deployer.getTargetRepository(artifactPath))
+                    .md5(md5).sha1(artifact.getSha1())
+                    .addProperties(artifact.getProperties()).addProperties(deployer.getProperties())
+                    .build();
+        }
     }
 }
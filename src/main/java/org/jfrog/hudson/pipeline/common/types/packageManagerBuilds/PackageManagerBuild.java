@@ -1,12 +1,12 @@
 package org.jfrog.hudson.pipeline.common.types.packageManagerBuilds;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
 import org.jenkinsci.plugins.workflow.cps.CpsScript;
 import org.jfrog.hudson.pipeline.common.types.ArtifactoryServer;
 import org.jfrog.hudson.pipeline.common.types.deployers.Deployer;
 import org.jfrog.hudson.pipeline.common.types.resolvers.Resolver;
+import org.jfrog.hudson.util.JsonMappers;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -91,7 +91,6 @@ public class PackageManagerBuild implements Serializable {
         JSONObject json = new JSONObject();
         json.putAll(serverlessArguments);
 
-        final ObjectMapper mapper = new ObjectMapper();
-        mapper.readerForUpdating(valueToUpdate).readValue(json.toString());
+        JsonMappers.strictMapper().readerForUpdating(valueToUpdate).readValue(json.toString());
     }
 }
@@ -26,6 +26,18 @@ public class BuildDataFile implements Serializable {
         jsonObject.put("stepName", stepName).put("stepId", stepId);
     }
 
+    private BuildDataFile(ObjectNode jsonObject) {
+        this.jsonObject = jsonObject;
+    }
+
+    /**
+     * @return A deep copy of this build data, in which the serializable objects are converted to JSON.
+     * Later changes to these objects don't affect the copy.
+     */
+    public BuildDataFile copy() {
+        return new BuildDataFile((ObjectNode) Utils.mapper().valueToTree(jsonObject));
+    }
+
     public BuildDataFile put(String key, String value) {
         jsonObject.put(key, value);
         return this;
@@ -44,6 +56,21 @@ public class BuildDataFile implements Serializable {
         return jsonObject.get(key);
     }
 
+    /**
+     * @return The number of JSON nodes of this build data, as an estimate of its size.
+     */
+    public int getNodesCount() {
+        return countNodes(jsonObject);
+    }
+
+    private static int countNodes(JsonNode node) {
+        int count = 1;
+        for (JsonNode child : node) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
     public String getStepName() {
         return jsonObject.get("stepName").asText();
     }
@@ -12,8 +12,6 @@ import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
 import org.jfrog.hudson.pipeline.common.types.ArtifactoryServer;
 import org.jfrog.hudson.pipeline.declarative.BuildDataFile;
 import org.jfrog.hudson.pipeline.declarative.utils.DeclarativePipelineUtils;
-import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
-import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
@@ -66,6 +64,11 @@ public class CreateServerStep extends AbstractStepImpl {
         server.getConnection().setRetry(retry);
     }
 
+    @DataBoundSetter
+    public void setDeploymentThreads(int deploymentThreads) {
+        server.setDeploymentThreads(deploymentThreads);
+    }
+
     public static class Execution extends AbstractSynchronousStepExecution<Void> {
         private static final long serialVersionUID = 1L;
 
@@ -83,8 +86,7 @@ public class CreateServerStep extends AbstractStepImpl {
 
         @Override
         protected Void run() throws Exception {
-            String buildNumber = BuildUniqueIdentifierHelper.getBuildNumber(build);
-            DeclarativePipelineUtils.writeBuildDataFile(ws, buildNumber, step.buildDataFile, new JenkinsBuildInfoLog(listener));
+            DeclarativePipelineUtils.writeBuildDataFile(ws, build, step.buildDataFile);
             return null;
         }
     }
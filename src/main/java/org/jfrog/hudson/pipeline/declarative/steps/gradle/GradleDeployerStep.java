@@ -72,6 +72,11 @@ public class GradleDeployerStep extends GradleDeployerResolver {
         buildDataFile.put("properties", String.join(";", properties));
     }
 
+    @DataBoundSetter
+    public void setThreads(int threads) {
+        gradleDeployer.setThreads(threads);
+    }
+
     @Extension
     public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
 
@@ -52,6 +52,11 @@ public class MavenDeployerStep extends MavenDeployerResolver {
         mavenDeployer.setDeployArtifacts(deployArtifacts);
     }
 
+    @DataBoundSetter
+    public void setThreads(int threads) {
+        mavenDeployer.setThreads(threads);
+    }
+
     @DataBoundSetter
     public void setDeployEvenIfUnstable(boolean deployEvenIfUnstable) {
         mavenDeployer.setDeployEvenIfUnstable(deployEvenIfUnstable);
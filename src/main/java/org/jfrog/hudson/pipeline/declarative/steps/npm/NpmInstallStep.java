@@ -22,7 +22,6 @@ import org.jfrog.hudson.pipeline.common.types.resolvers.NpmResolver;
 import org.jfrog.hudson.pipeline.declarative.BuildDataFile;
 import org.jfrog.hudson.pipeline.declarative.utils.DeclarativePipelineUtils;
 import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
-import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
@@ -106,7 +105,7 @@ public class NpmInstallStep extends AbstractStepImpl {
             String npmExe = Utils.getNpmExe(listener, env, launcher, step.npmBuild.getTool());
             NpmInstallExecutor npmInstallExecutor = new NpmInstallExecutor(buildInfo, step.npmBuild, npmExe, step.args, ws, step.path, listener, build);
             npmInstallExecutor.execute();
-            DeclarativePipelineUtils.saveBuildInfo(npmInstallExecutor.getBuildInfo(), ws, build, new JenkinsBuildInfoLog(listener));
+            DeclarativePipelineUtils.saveBuildInfo(npmInstallExecutor.getBuildInfo(), ws, build);
             return null;
         }
 
@@ -114,7 +113,7 @@ public class NpmInstallStep extends AbstractStepImpl {
             if (StringUtils.isBlank(step.resolverId)) {
                 return;
             }
-            BuildDataFile buildDataFile = DeclarativePipelineUtils.readBuildDataFile(ws, buildNumber, NpmResolverStep.STEP_NAME, step.resolverId);
+            BuildDataFile buildDataFile = DeclarativePipelineUtils.readBuildDataFile(ws, build, NpmResolverStep.STEP_NAME, step.resolverId);
             if (buildDataFile == null) {
                 throw new IOException("Resolver " + step.resolverId + " doesn't exist!");
             }
@@ -22,7 +22,6 @@ import org.jfrog.hudson.pipeline.common.types.packageManagerBuilds.NpmBuild;
 import org.jfrog.hudson.pipeline.declarative.BuildDataFile;
 import org.jfrog.hudson.pipeline.declarative.utils.DeclarativePipelineUtils;
 import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
-import org.jfrog.hudson.util.JenkinsBuildInfoLog;
 import org.jfrog.hudson.util.PropertyUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -101,7 +100,7 @@ public class NpmPublishStep extends AbstractStepImpl {
             String npmExe = Utils.getNpmExe(listener, env, launcher, step.npmBuild.getTool());
             NpmPublishExecutor npmPublishExecutor = new NpmPublishExecutor(getContext(), buildInfo, step.npmBuild, npmExe, step.path, ws, listener, build);
             npmPublishExecutor.execute();
-            DeclarativePipelineUtils.saveBuildInfo(npmPublishExecutor.getBuildInfo(), ws, build, new JenkinsBuildInfoLog(listener));
+            DeclarativePipelineUtils.saveBuildInfo(npmPublishExecutor.getBuildInfo(), ws, build);
             return null;
         }
 
@@ -109,7 +108,7 @@ public class NpmPublishStep extends AbstractStepImpl {
             if (StringUtils.isBlank(step.deployerId)) {
                 return;
             }
-            BuildDataFile buildDataFile = DeclarativePipelineUtils.readBuildDataFile(ws, buildNumber, NpmDeployerStep.STEP_NAME, step.deployerId);
+            BuildDataFile buildDataFile = DeclarativePipelineUtils.readBuildDataFile(ws, build, NpmDeployerStep.STEP_NAME, step.deployerId);
             if (buildDataFile == null) {
                 throw new IOException("Deployer " + step.deployerId + " doesn't exist!");
             }
@@ -0,0 +1,266 @@
+package org.jfrog.hudson.pipeline.declarative.utils;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import org.jfrog.build.api.util.Log;
+import org.jfrog.hudson.pipeline.common.Utils;
+import org.jfrog.hudson.pipeline.declarative.BuildDataFile;
+import org.jfrog.hudson.util.BuildUniqueIdentifierHelper;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.jfrog.hudson.util.ExtractorUtils.createAndGetTempDir;
+
+/**
+ * Caches on the master the build data files of the declarative pipelines, so that steps reading the data of previous
+ * steps don't access the agent.
+ * An entry is identified by the run which owns it and by the file it caches: the agent, workspace, step name and step id.
+ * The entries of a run are dropped when the run completes.
+ * Writes are cached immediately and written to the agent file in the background, so that the data survives a master restart.
+ * Consecutive writes of the same file are coalesced, so only the latest data is written.
+ * A failed background write is reported by the next read or write of the same run, or in the build log when the run completes.
+ */
+public class BuildDataFileCache {
+    private static final Logger log = Logger.getLogger(BuildDataFileCache.class.getName());
+    // Maximum total number of JSON nodes in the cached build data
+    static final long MAX_WEIGHT = 1000000;
+    private static final int WRITER_THREADS = 4;
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static final BuildDataFileCache instance = new BuildDataFileCache(Executors.newFixedThreadPool(WRITER_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("artifactory-build-data-writer-%d").setDaemon(true).build()));
+
+    // Missing files are cached as well, since servers are usually looked up in the build data before the global configuration.
+    private final Cache<List<String>, Optional<BuildDataFile>> entries = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT).weigher(new Weigher<List<String>, Optional<BuildDataFile>>() {
+                public int weigh(List<String> key, Optional<BuildDataFile> buildDataFile) {
+                    return buildDataFile.isPresent() ? buildDataFile.get().getNodesCount() : 1;
+                }
+            }).build();
+    private final ConcurrentMap<List<String>, PendingWrite> pendingWrites = new ConcurrentHashMap<List<String>, PendingWrite>();
+    // The first failed write of each run which was not reported yet, by the run id.
+    private final ConcurrentMap<String, String> failedWrites = new ConcurrentHashMap<String, String>();
+    // Writes of the same file by the background writer and by the completion of the run are never concurrent
+    private final Striped<Lock> flushLocks = Striped.lock(WRITER_THREADS * 4);
+    private final ExecutorService writer;
+
+    BuildDataFileCache(ExecutorService writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * @return A copy of the build data, or null if the file doesn't exist.
+     * @throws IOException If a previous background write of the build failed.
+     */
+    static BuildDataFile read(FilePath ws, Run build, String stepName, String stepId) throws IOException, InterruptedException {
+        return instance.read(ws, build.getExternalizableId(), BuildUniqueIdentifierHelper.getBuildNumber(build), stepName, stepId);
+    }
+
+    /**
+     * @throws IOException If a previous background write of the build failed.
+     */
+    static void write(FilePath ws, Run build, BuildDataFile buildDataFile) throws IOException {
+        instance.write(ws, build.getExternalizableId(), BuildUniqueIdentifierHelper.getBuildNumber(build), buildDataFile);
+    }
+
+    BuildDataFile read(FilePath ws, String runId, String buildNumber, String stepName, String stepId) throws IOException, InterruptedException {
+        checkFailedWrites(runId);
+        List<String> key = createKey(ws, runId, stepName, stepId);
+        Optional<BuildDataFile> buildDataFile = entries.getIfPresent(key);
+        if (buildDataFile == null) {
+            PendingWrite pendingWrite = pendingWrites.get(key);
+            if (pendingWrite != null) {
+                buildDataFile = Optional.of(pendingWrite.buildDataFile);
+            } else {
+                buildDataFile = Optional.fromNullable(createAndGetTempDir(ws).act(new ReadBuildDataFileCallable(buildNumber, stepName, stepId)));
+            }
+            // Don't override data written while the file was read.
+            Optional<BuildDataFile> current = entries.asMap().putIfAbsent(key, buildDataFile);
+            if (current != null) {
+                buildDataFile = current;
+            }
+        }
+        return buildDataFile.isPresent() ? buildDataFile.get().copy() : null;
+    }
+
+    void write(FilePath ws, String runId, String buildNumber, BuildDataFile buildDataFile) throws IOException {
+        checkFailedWrites(runId);
+        BuildDataFile snapshot = buildDataFile.copy();
+        final List<String> key = createKey(ws, runId, snapshot.getStepName(), snapshot.getId());
+        entries.put(key, Optional.of(snapshot));
+        // If there's already a pending write of the file, it writes the latest data.
+        if (pendingWrites.put(key, new PendingWrite(ws, runId, buildNumber, snapshot)) == null) {
+            try {
+                writer.execute(new Runnable() {
+                    public void run() {
+                        flush(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Jenkins is shutting down
+                flush(key);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending data of the file until there's no newer data.
+     * The pending data is removed only after it was written, so that it is available to readers in case it was evicted.
+     */
+    private void flush(List<String> key) {
+        Lock lock = flushLocks.get(key);
+        lock.lock();
+        try {
+            PendingWrite pendingWrite;
+            while ((pendingWrite = pendingWrites.get(key)) != null) {
+                try {
+                    createAndGetTempDir(pendingWrite.ws).act(new CreateBuildDataFileCallable(pendingWrite.buildNumber, pendingWrite.buildDataFile, new WriterLog()));
+                } catch (Exception e) {
+                    String message = "Failed writing build data file of " + pendingWrite.buildDataFile.getStepName() +
+                            " '" + pendingWrite.buildDataFile.getId() + "' in " + pendingWrite.ws.getRemote();
+                    log.log(Level.WARNING, message, e);
+                    failedWrites.putIfAbsent(pendingWrite.runId, message + ": " + e.getMessage());
+                }
+                if (pendingWrites.remove(key, pendingWrite)) {
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports the failed background write of the run, if there's one. It is reported once.
+     */
+    private void checkFailedWrites(String runId) throws IOException {
+        String failure = failedWrites.remove(runId);
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    /**
+     * Writes the pending data of the completed run in the calling thread, reports a failed write which was not
+     * reported yet to the build log, and drops the entries of the run.
+     */
+    void completeRun(String runId, TaskListener listener) {
+        for (List<String> key : pendingWrites.keySet()) {
+            if (isOfRun(key, runId)) {
+                flush(key);
+            }
+        }
+        String failure = failedWrites.remove(runId);
+        if (failure != null) {
+            listener.error("The Artifactory build data of this build may be incomplete. " + failure);
+        }
+        for (Iterator<List<String>> keys = entries.asMap().keySet().iterator(); keys.hasNext(); ) {
+            if (isOfRun(keys.next(), runId)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Waits for the pending writes, so that the data of the running builds survives the restart.
+     */
+    void flushPendingWrites() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warning(pendingWrites.size() + " build data files were not written within " + SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> createKey(FilePath ws, String runId, String stepName, String stepId) {
+        return Arrays.asList(runId, Utils.getAgentName(ws), ws.getRemote(), stepName, stepId);
+    }
+
+    private static boolean isOfRun(List<String> key, String runId) {
+        return key.get(0).equals(runId);
+    }
+
+    private static class PendingWrite {
+        private final FilePath ws;
+        private final String runId;
+        private final String buildNumber;
+        private final BuildDataFile buildDataFile;
+
+        PendingWrite(FilePath ws, String runId, String buildNumber, BuildDataFile buildDataFile) {
+            this.ws = ws;
+            this.runId = runId;
+            this.buildNumber = buildNumber;
+            this.buildDataFile = buildDataFile;
+        }
+    }
+
+    /**
+     * The log of the background writes. The step which wrote the data may have already returned, so its build log is not used.
+     */
+    private static class WriterLog implements Log, Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final Logger logger = Logger.getLogger(BuildDataFileCache.class.getName());
+
+        public void debug(String message) {
+            logger.fine(message);
+        }
+
+        public void info(String message) {
+            logger.info(message);
+        }
+
+        public void warn(String message) {
+            logger.warning(message);
+        }
+
+        public void error(String message) {
+            logger.severe(message);
+        }
+
+        public void error(String message, Throwable e) {
+            logger.log(Level.SEVERE, message, e);
+        }
+    }
+
+    @Extension
+    public static final class CompletedRunListener extends RunListener<Run> {
+        @Override
+        public void onCompleted(Run run, TaskListener listener) {
+            instance.completeRun(run.getExternalizableId(), listener);
+        }
+    }
+
+    @Extension
+    public static final class ShutdownListener extends ItemListener {
+        @Override
+        public void onBeforeShutdown() {
+            instance.flushPendingWrites();
+        }
+    }
+}
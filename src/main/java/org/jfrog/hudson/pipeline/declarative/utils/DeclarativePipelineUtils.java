@@ -22,8 +22,6 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
-import static org.jfrog.hudson.util.ExtractorUtils.createAndGetTempDir;
-
 public class DeclarativePipelineUtils {
 
     static final String PIPELINE_CACHE_DIR_NAME = "artifactory-pipeline-cache";
@@ -31,27 +29,29 @@ public class DeclarativePipelineUtils {
     /**
      * Create pipeline build data in @tmp/artifactory-pipeline-cache/build-number directory.
      * Used to transfer data between different steps in declarative pipelines.
+     * The data is cached on the master and written to the agent in the background.
      *
      * @param ws            - The agent workspace.
-     * @param buildNumber   - The build number.
+     * @param build         - Step's build.
      * @param buildDataFile - The build data file to save.
-     * @throws Exception - In case of no write permissions.
+     * @throws IOException - If a previous background write of the build failed.
      */
-    public static void writeBuildDataFile(FilePath ws, String buildNumber, BuildDataFile buildDataFile, Log logger) throws Exception {
-        createAndGetTempDir(ws).act(new CreateBuildDataFileCallable(buildNumber, buildDataFile, logger));
+    public static void writeBuildDataFile(FilePath ws, Run build, BuildDataFile buildDataFile) throws Exception {
+        BuildDataFileCache.write(ws, build, buildDataFile);
     }
 
     /**
      * Read pipeline build data from @tmp/artifactory-pipeline-cache/build-number directory.
      * Used to transfer data between different steps in declarative pipelines.
+     * The data is read from the master cache if it was read or written before.
      *
-     * @param buildNumber - The build number.
+     * @param build       - Step's build.
      * @param stepName    - The step name - One of 'artifactoryMaven', 'mavenDeploy', 'mavenResolve', 'buildInfo' and other declarative pipeline steps.
      * @param stepId      - The step id specified in the pipeline.
-     * @throws IOException - In case of no read permissions.
+     * @throws IOException - In case of no read permissions, or if a previous background write of the build failed.
      */
-    public static BuildDataFile readBuildDataFile(FilePath ws, final String buildNumber, final String stepName, final String stepId) throws IOException, InterruptedException {
-        return createAndGetTempDir(ws).act(new ReadBuildDataFileCallable(buildNumber, stepName, stepId));
+    public static BuildDataFile readBuildDataFile(FilePath ws, Run build, final String stepName, final String stepId) throws IOException, InterruptedException {
+        return BuildDataFileCache.read(ws, build, stepName, stepId);
     }
 
     static String getBuildDataFileName(String stepName, String stepId) {
@@ -68,8 +68,7 @@ public class DeclarativePipelineUtils {
      * @return Artifactory server.
      */
     public static ArtifactoryServer getArtifactoryServer(Run build, FilePath ws, StepContext context, String serverId) throws IOException, InterruptedException {
-        String buildNumber = BuildUniqueIdentifierHelper.getBuildNumber(build);
-        BuildDataFile buildDataFile = readBuildDataFile(ws, buildNumber, CreateServerStep.STEP_NAME, serverId);
+        BuildDataFile buildDataFile = readBuildDataFile(ws, build, CreateServerStep.STEP_NAME, serverId);
         // If the server has not been configured as part of the declarative pipeline script, get its details from it.
         if (buildDataFile == null) {
             // This server ID has not been configured as part of the declarative pipeline script.
@@ -113,10 +112,9 @@ public class DeclarativePipelineUtils {
      * @return build info object as defined in previous rtBuildInfo{...} scope or a new build info.
      */
     public static BuildInfo getBuildInfo(FilePath ws, Run build, String customBuildName, String customBuildNumber) throws IOException, InterruptedException {
-        String jobBuildNumber = BuildUniqueIdentifierHelper.getBuildNumber(build);
         String buildInfoId = createBuildInfoId(build, customBuildName, customBuildNumber);
 
-        BuildDataFile buildDataFile = readBuildDataFile(ws, jobBuildNumber, BuildInfoStep.STEP_NAME, buildInfoId);
+        BuildDataFile buildDataFile = readBuildDataFile(ws, build, BuildInfoStep.STEP_NAME, buildInfoId);
         if (buildDataFile == null) {
             BuildInfo buildInfo = new BuildInfo(build);
             if (StringUtils.isNotBlank(customBuildName)) {
@@ -137,13 +135,12 @@ public class DeclarativePipelineUtils {
      * @param ws        - Step's workspace.
      * @param build     - Step's build.
      */
-    public static void saveBuildInfo(BuildInfo buildInfo, FilePath ws, Run build, Log logger) throws Exception {
-        String jobBuildNumber = BuildUniqueIdentifierHelper.getBuildNumber(build);
+    public static void saveBuildInfo(BuildInfo buildInfo, FilePath ws, Run build) throws Exception {
         String buildInfoId = createBuildInfoId(build, buildInfo.getName(), buildInfo.getNumber());
 
         BuildDataFile buildDataFile = new BuildDataFile(BuildInfoStep.STEP_NAME, buildInfoId);
         buildDataFile.putPOJO(buildInfo);
-        writeBuildDataFile(ws, jobBuildNumber, buildDataFile, logger);
+        writeBuildDataFile(ws, build, buildDataFile);
     }
 
     /**
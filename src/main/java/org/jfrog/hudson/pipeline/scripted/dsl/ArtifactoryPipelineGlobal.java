@@ -1,6 +1,5 @@
 package org.jfrog.hudson.pipeline.scripted.dsl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
@@ -14,6 +13,7 @@ import org.jfrog.hudson.pipeline.common.types.buildInfo.BuildInfo;
 import org.jfrog.hudson.pipeline.common.types.packageManagerBuilds.GradleBuild;
 import org.jfrog.hudson.pipeline.common.types.packageManagerBuilds.MavenBuild;
 import org.jfrog.hudson.pipeline.common.types.packageManagerBuilds.NpmBuild;
+import org.jfrog.hudson.util.JsonMappers;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -66,8 +66,7 @@ public class ArtifactoryPipelineGlobal implements Serializable {
         // Instead we will remove it and later on set it on the deployer object.
         Object server = dockerArguments.remove("server");
 
-        final ObjectMapper mapper = new ObjectMapper();
-        Docker docker = mapper.convertValue(dockerArguments, Docker.class);
+        Docker docker = JsonMappers.strictMapper().convertValue(dockerArguments, Docker.class);
         docker.setCpsScript(cpsScript);
         if (server != null) {
             docker.setServer((ArtifactoryServer) server);
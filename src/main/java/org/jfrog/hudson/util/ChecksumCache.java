@@ -0,0 +1,398 @@
+package org.jfrog.hudson.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Agent-local store of file checksums, persisted under the node root.
+ * An entry is keyed by the canonical path of the file, and is valid as long as the size, modification time and
+ * file key (inode) of the file are unchanged. Stale entries are recalculated.
+ * Since file systems store the modification time with a coarse granularity, a file which was modified shortly
+ * before its checksums were recorded may be modified again without changing its time. Such entries, and the entries
+ * of files without a file key (on Windows), are never trusted.
+ * The store keeps the most recently used entries, and is shared by all the builds running on the node.
+ */
+public class ChecksumCache {
+    private static final Logger logger = Logger.getLogger(ChecksumCache.class.getName());
+    public static final String CACHE_PATH = "cache/artifactory-plugin/checksums.cache";
+    static final int DEFAULT_MAX_ENTRIES = 50000;
+    private static final String FORMAT_VERSION = "#v3";
+    private static final String[] ALGORITHMS = {ChecksumCalculator.SHA1, ChecksumCalculator.MD5};
+    // The coarsest modification time granularity of the common file systems (FAT)
+    static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000;
+
+    // Changes are persisted in the background, so that many lookups in a short time are saved once
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    // One instance per cache file, shared by all the executors of the agent
+    private static final Map<String, ChecksumCache> instances = new ConcurrentHashMap<String, ChecksumCache>();
+    private static final ScheduledExecutorService saveExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("artifactory-checksum-cache").setDaemon(true).build());
+
+    private final File cacheFile;
+    private final Map<String, Entry> entries;
+    private final Object saveLock = new Object();
+    private boolean loaded;
+    private boolean dirty;
+    private boolean saveScheduled;
+
+    ChecksumCache(File cacheFile, final int maxEntries) {
+        this.cacheFile = cacheFile;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Should be called on the master.
+     *
+     * @return The remote path of the checksum cache of the node which contains the given path, or null if the node
+     * is not available.
+     */
+    public static String getCachePath(FilePath path) {
+        Computer computer = path.toComputer();
+        Node node = computer != null ? computer.getNode() : null;
+        FilePath rootPath = node != null ? node.getRootPath() : null;
+        return rootPath != null ? rootPath.child(CACHE_PATH).getRemote() : null;
+    }
+
+    /**
+     * Should be called on the node which holds the cache.
+     *
+     * @param cachePath The cache path returned by {@link #getCachePath(FilePath)}.
+     */
+    public static ChecksumCache getInstance(String cachePath) {
+        ChecksumCache cache = instances.get(cachePath);
+        if (cache == null) {
+            synchronized (instances) {
+                cache = instances.get(cachePath);
+                if (cache == null) {
+                    cache = new ChecksumCache(new File(cachePath), DEFAULT_MAX_ENTRIES);
+                    instances.put(cachePath, cache);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Opens a session for looking up checksums. The session counts its own hits and misses,
+     * and schedules the persistence of the cache when it is closed.
+     *
+     * @param cachePath The cache path, or null for a session which calculates all the checksums without caching them.
+     */
+    public static Session openSession(String cachePath, Log log) {
+        return new Session(StringUtils.isBlank(cachePath) ? null : getInstance(cachePath), log);
+    }
+
+    /**
+     * @return A map from each of SHA1 and MD5 to the checksum of the file.
+     */
+    Map<String, String> getChecksums(File file, AtomicInteger hits, AtomicInteger misses) throws IOException {
+        Path path = file.toPath();
+        String key = file.getCanonicalPath();
+        long recordedTime = System.currentTimeMillis();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Map<String, String> cached = getCachedChecksums(key, attributes);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        Map<String, String> checksums = ChecksumCalculator.calculateChecksums(file, ALGORITHMS);
+        BasicFileAttributes attributesAfter = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = new Entry(attributes, checksums, recordedTime);
+        // Don't cache the checksums of a file which was modified while it was read
+        if (entry.isSameFile(attributesAfter) && key.indexOf('\n') < 0) {
+            synchronized (this) {
+                entries.put(key, entry);
+                dirty = true;
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * @return A map from each of SHA1 and MD5 to the checksum of the file, or null if the file has no valid entry.
+     * The file is never read.
+     */
+    Map<String, String> getCachedChecksums(File file, AtomicInteger hits, AtomicInteger misses) throws IOException {
+        Map<String, String> cached = getCachedChecksums(file.getCanonicalPath(),
+                Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+        (cached != null ? hits : misses).incrementAndGet();
+        return cached;
+    }
+
+    private Map<String, String> getCachedChecksums(String key, BasicFileAttributes attributes) throws IOException {
+        load();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        return entry != null && entry.isValid(attributes) ? entry.getChecksums() : null;
+    }
+
+    /**
+     * Caches checksums which were calculated while the file was written or uploaded, so the file is never read
+     * only for hashing.
+     */
+    void put(File file, Map<String, String> checksums) throws IOException {
+        load();
+        String key = file.getCanonicalPath();
+        if (key.indexOf('\n') >= 0) {
+            return;
+        }
+        long recordedTime = System.currentTimeMillis();
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        synchronized (this) {
+            entries.put(key, new Entry(attributes, checksums, recordedTime));
+            dirty = true;
+        }
+    }
+
+    synchronized void scheduleSave() {
+        if (!dirty || saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        saveExecutor.schedule(new Runnable() {
+            public void run() {
+                synchronized (ChecksumCache.this) {
+                    saveScheduled = false;
+                }
+                try {
+                    save();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to save the checksum cache " + cacheFile, e);
+                }
+            }
+        }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Persists the cache if it was changed. The cache file is replaced atomically, so it is never read partially written.
+     */
+    void save() throws IOException {
+        synchronized (saveLock) {
+            List<String> lines;
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                lines = new ArrayList<String>(entries.size() + 1);
+                lines.add(FORMAT_VERSION);
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    lines.add(entry.getValue().toLine(entry.getKey()));
+                }
+                dirty = false;
+            }
+            File dir = cacheFile.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+            Path tempFile = Files.createTempFile(dir.toPath(), cacheFile.getName(), ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+                Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!FORMAT_VERSION.equals(reader.readLine())) {
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = StringUtils.splitPreserveAllTokens(line, "\t", 7);
+                if (fields.length == 7) {
+                    entries.put(fields[6], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2],
+                            Long.parseLong(fields[3]), fields[4], fields[5]));
+                }
+            }
+        } catch (NumberFormatException e) {
+            // A corrupted cache is dropped and rebuilt
+            entries.clear();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checksum lookups of a single build step.
+     */
+    public static class Session implements AutoCloseable {
+        private final ChecksumCache cache;
+        private final Log log;
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger misses = new AtomicInteger();
+
+        private Session(ChecksumCache cache, Log log) {
+            this.cache = cache;
+            this.log = log;
+        }
+
+        /**
+         * @return A map from each of {@link ChecksumCalculator#SHA1} and {@link ChecksumCalculator#MD5} to the
+         * checksum of the file.
+         */
+        public Map<String, String> getChecksums(File file) throws IOException {
+            if (cache == null) {
+                return ChecksumCalculator.calculateChecksums(file, ALGORITHMS);
+            }
+            return cache.getChecksums(file, hits, misses);
+        }
+
+        /**
+         * Looks up the checksums without reading the file. Used when the checksums can be calculated later, while the
+         * file is read anyway, for example while it is uploaded.
+         *
+         * @return A map from each of {@link ChecksumCalculator#SHA1} and {@link ChecksumCalculator#MD5} to the
+         * checksum of the file, or null if the checksums of the file are not cached.
+         */
+        public Map<String, String> getCachedChecksums(File file) throws IOException {
+            if (cache == null) {
+                return null;
+            }
+            return cache.getCachedChecksums(file, hits, misses);
+        }
+
+        /**
+         * Records the checksums of a file which was just written or read.
+         * Checksums without both {@link ChecksumCalculator#SHA1} and {@link ChecksumCalculator#MD5} are ignored.
+         */
+        public void record(File file, Map<String, String> checksums) throws IOException {
+            if (cache == null) {
+                return;
+            }
+            for (String algorithm : ALGORITHMS) {
+                if (checksums.get(algorithm) == null) {
+                    return;
+                }
+            }
+            cache.put(file, checksums);
+        }
+
+        public int getHits() {
+            return hits.get();
+        }
+
+        public int getMisses() {
+            return misses.get();
+        }
+
+        public void logSummary() {
+            int total = hits.get() + misses.get();
+            if (total > 0) {
+                log.info(String.format("Checksum cache: %d hits, %d misses out of %d files", hits.get(), misses.get(), total));
+            }
+        }
+
+        public void close() {
+            if (cache != null) {
+                cache.scheduleSave();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String fileKey;
+        // The time before the file attributes were read for the entry
+        private final long recordedTime;
+        private final String sha1;
+        private final String md5;
+
+        Entry(long size, long lastModified, String fileKey, long recordedTime, String sha1, String md5) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.recordedTime = recordedTime;
+            this.sha1 = sha1;
+            this.md5 = md5;
+        }
+
+        Entry(BasicFileAttributes attributes, Map<String, String> checksums, long recordedTime) {
+            this(attributes.size(), attributes.lastModifiedTime().toMillis(), getFileKey(attributes), recordedTime,
+                    checksums.get(ChecksumCalculator.SHA1), checksums.get(ChecksumCalculator.MD5));
+        }
+
+        /**
+         * @return True if the checksums of the entry can be used for a file with the given attributes.
+         */
+        boolean isValid(BasicFileAttributes attributes) {
+            return isSameFile(attributes) && !fileKey.isEmpty() &&
+                    recordedTime - lastModified >= MODIFICATION_TIME_GRANULARITY_MILLIS;
+        }
+
+        boolean isSameFile(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis() &&
+                    fileKey.equals(getFileKey(attributes));
+        }
+
+        Map<String, String> getChecksums() {
+            Map<String, String> checksums = new HashMap<String, String>();
+            checksums.put(ChecksumCalculator.SHA1, sha1);
+            checksums.put(ChecksumCalculator.MD5, md5);
+            return checksums;
+        }
+
+        String toLine(String path) {
+            return size + "\t" + lastModified + "\t" + fileKey + "\t" + recordedTime + "\t" + sha1 + "\t" + md5 + "\t" + path;
+        }
+
+        private static String getFileKey(BasicFileAttributes attributes) {
+            // The file key holds the device and inode on Unix, and is not available on Windows
+            Object fileKey = attributes.fileKey();
+            return fileKey != null ? fileKey.toString().replace('\t', ' ') : "";
+        }
+    }
+}
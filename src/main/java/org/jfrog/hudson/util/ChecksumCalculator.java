@@ -0,0 +1,94 @@
+package org.jfrog.hudson.util;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calculates several checksums of a file in a single read.
+ * The file content can be copied to an output stream while it is being digested, so that an upload doesn't need to
+ * read the file twice.
+ */
+public class ChecksumCalculator {
+    public static final String SHA1 = "SHA1";
+    public static final String MD5 = "MD5";
+
+    // Large reads keep the number of system calls low for multi-GB files on slow storage
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private ChecksumCalculator() {
+    }
+
+    /**
+     * @return A map from each of the algorithms to the lowercase hex checksum of the file.
+     */
+    public static Map<String, String> calculateChecksums(File file, String... algorithms) throws IOException {
+        return copyAndCalculateChecksums(file, null, algorithms);
+    }
+
+    /**
+     * Copies the file to the output stream, and calculates the file checksums while it is being copied.
+     *
+     * @param out The stream to copy the file to. May be null, in which case the file is only digested.
+     * @return A map from each of the algorithms to the lowercase hex checksum of the file.
+     */
+    public static Map<String, String> copyAndCalculateChecksums(File file, OutputStream out, String... algorithms)
+            throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return copyAndCalculateChecksums(in, out, (int) Math.min(BUFFER_SIZE, Math.max(file.length(), 1)), algorithms);
+        }
+    }
+
+    /**
+     * Copies the input stream to the output stream, and calculates the content checksums while it is being copied.
+     * The streams are not closed.
+     *
+     * @param out The stream to copy to. May be null, in which case the content is only digested.
+     * @return A map from each of the algorithms to the lowercase hex checksum of the content.
+     */
+    public static Map<String, String> copyAndCalculateChecksums(InputStream in, OutputStream out, String... algorithms)
+            throws IOException {
+        return copyAndCalculateChecksums(in, out, BUFFER_SIZE, algorithms);
+    }
+
+    private static Map<String, String> copyAndCalculateChecksums(InputStream in, OutputStream out, int bufferSize,
+                                                                String... algorithms) throws IOException {
+        MessageDigest[] digests = createDigests(algorithms);
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            for (MessageDigest digest : digests) {
+                digest.update(buffer, 0, read);
+            }
+            if (out != null) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        Map<String, String> checksums = new HashMap<String, String>();
+        for (int i = 0; i < algorithms.length; i++) {
+            checksums.put(algorithms[i], new String(Hex.encodeHex(digests[i].digest())));
+        }
+        return checksums;
+    }
+
+    private static MessageDigest[] createDigests(String... algorithms) {
+        MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            try {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Could not find checksum algorithm: " + algorithms[i], e);
+            }
+        }
+        return digests;
+    }
+}
@@ -0,0 +1,332 @@
+package org.jfrog.hudson.util;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node-wide content-addressable store of downloaded artifacts, kept under the node root and keyed by SHA1.
+ * The store keeps its own read-only copy of each artifact, and a cached artifact is materialized into the workspace
+ * by a writable copy, so a build never shares the content of its files with the store or with other workspaces.
+ * The store is bounded by size. When it grows beyond the bound, the least recently used artifacts are evicted.
+ * Changes to the store are locked across the executors of the node, and across processes sharing the node root.
+ */
+public class DownloadCache {
+    public static final String CACHE_PATH = "cache/artifactory-plugin/downloads";
+    public static final long DEFAULT_MAX_SIZE_MB = 10 * 1024;
+    private static final String ACCESS_SUFFIX = ".access";
+    private static final String LOCK_FILE_NAME = ".lock";
+
+    private static final Map<String, DownloadCache> instances = new ConcurrentHashMap<String, DownloadCache>();
+
+    private final File storeDir;
+    private final String checksumCachePath;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    DownloadCache(File storeDir, String checksumCachePath) {
+        this.storeDir = storeDir;
+        this.checksumCachePath = checksumCachePath;
+    }
+
+    /**
+     * Should be called on the master.
+     *
+     * @return The remote path of the download cache of the node which contains the given path, or null if the node
+     * is not available.
+     */
+    public static String getCachePath(FilePath path) {
+        Computer computer = path.toComputer();
+        Node node = computer != null ? computer.getNode() : null;
+        FilePath rootPath = node != null ? node.getRootPath() : null;
+        return rootPath != null ? rootPath.child(CACHE_PATH).getRemote() : null;
+    }
+
+    /**
+     * Should be called on the node which holds the cache.
+     *
+     * @param checksumCachePath The node's checksum cache, used to validate the cached artifacts. May be null.
+     */
+    public static DownloadCache getInstance(String cachePath, String checksumCachePath) {
+        DownloadCache cache = instances.get(cachePath);
+        if (cache == null) {
+            synchronized (instances) {
+                cache = instances.get(cachePath);
+                if (cache == null) {
+                    cache = new DownloadCache(new File(cachePath), checksumCachePath);
+                    instances.put(cachePath, cache);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param maxSize The bound of the store size in bytes, applied when the session is closed.
+     */
+    public Session openSession(Log log, long maxSize) {
+        return new Session(log, maxSize);
+    }
+
+    /**
+     * Materializes the cached artifact with the given SHA1 into the target file, as a writable copy.
+     *
+     * @return true if the artifact was cached.
+     */
+    boolean materialize(String sha1, File target) throws IOException {
+        File cached = getCachedFile(sha1);
+        if (!cached.isFile()) {
+            return false;
+        }
+        Map<String, String> checksums = validate(cached, sha1);
+        if (checksums == null) {
+            return false;
+        }
+        Path targetPath = target.toPath();
+        Files.createDirectories(targetPath.getParent());
+        deleteIfExists(targetPath);
+        try {
+            Files.copy(cached.toPath(), targetPath);
+        } catch (IOException e) {
+            // The artifact might have been evicted meanwhile
+            deleteIfExists(targetPath);
+            return false;
+        }
+        // The copy has the permissions of the read-only cached artifact
+        target.setWritable(true);
+        touch(sha1);
+        if (!checksums.isEmpty()) {
+            // The workspace file won't be hashed when it is verified by the next build
+            try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, null)) {
+                checksumCache.record(target, checksums);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a copy of a downloaded file to the store, unless an artifact with the same SHA1 is already cached.
+     * The downloaded file is left as is.
+     */
+    void add(String sha1, File file) throws IOException {
+        File cached = getCachedFile(sha1);
+        if (cached.isFile()) {
+            touch(sha1);
+            return;
+        }
+        Path dir = cached.getParentFile().toPath();
+        Files.createDirectories(dir);
+        Path temp = dir.resolve(sha1 + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            deleteIfExists(temp);
+            Files.copy(file.toPath(), temp);
+            temp.toFile().setWritable(false, false);
+            withLock(new LockedAction() {
+                public void run() throws IOException {
+                    Files.move(temp, cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            });
+            touch(sha1);
+        } finally {
+            deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Evicts the least recently used artifacts, until the store size is below the bound.
+     */
+    void evict(final long maxSize) throws IOException {
+        withLock(new LockedAction() {
+            public void run() throws IOException {
+                List<File> cachedFiles = listCachedFiles();
+                long size = 0;
+                for (File cachedFile : cachedFiles) {
+                    size += cachedFile.length();
+                }
+                if (size <= maxSize) {
+                    return;
+                }
+                Collections.sort(cachedFiles, new Comparator<File>() {
+                    public int compare(File f1, File f2) {
+                        return Long.compare(getAccessFile(f1).lastModified(), getAccessFile(f2).lastModified());
+                    }
+                });
+                for (File cachedFile : cachedFiles) {
+                    if (size <= maxSize) {
+                        break;
+                    }
+                    size -= cachedFile.length();
+                    deleteIfExists(cachedFile.toPath());
+                    Files.deleteIfExists(getAccessFile(cachedFile).toPath());
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The checksums of the cached artifact, an empty map if there's no checksum cache to validate it with,
+     * or null if it is no longer valid.
+     */
+    private Map<String, String> validate(File cached, String sha1) throws IOException {
+        if (StringUtils.isBlank(checksumCachePath)) {
+            return Collections.emptyMap();
+        }
+        // An artifact which was modified or corrupted in the store is no longer valid
+        try (ChecksumCache.Session checksumCache = ChecksumCache.openSession(checksumCachePath, null)) {
+            Map<String, String> checksums = checksumCache.getChecksums(cached);
+            if (sha1.equalsIgnoreCase(checksums.get(ChecksumCalculator.SHA1))) {
+                return checksums;
+            }
+        }
+        deleteIfExists(cached.toPath());
+        return null;
+    }
+
+    /**
+     * Deletes a file which might be read-only, such as a cached artifact.
+     * Unlike other systems, Windows doesn't delete read-only files.
+     */
+    private static void deleteIfExists(Path path) throws IOException {
+        try {
+            Files.deleteIfExists(path);
+        } catch (AccessDeniedException e) {
+            if (!path.toFile().setWritable(true)) {
+                throw e;
+            }
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private File getCachedFile(String sha1) {
+        String key = sha1.toLowerCase();
+        return new File(new File(storeDir, key.substring(0, 2)), key);
+    }
+
+    private static File getAccessFile(File cachedFile) {
+        return new File(cachedFile.getPath() + ACCESS_SUFFIX);
+    }
+
+    /**
+     * Records the access time of an artifact in a separate file, since touching the artifact itself would
+     * invalidate its checksums in the checksum cache.
+     */
+    private void touch(String sha1) throws IOException {
+        File accessFile = getAccessFile(getCachedFile(sha1));
+        if (!accessFile.exists()) {
+            Files.write(accessFile.toPath(), new byte[0]);
+        } else {
+            accessFile.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    private List<File> listCachedFiles() {
+        List<File> cachedFiles = new ArrayList<File>();
+        File[] dirs = storeDir.listFiles();
+        if (dirs == null) {
+            return cachedFiles;
+        }
+        for (File dir : dirs) {
+            File[] files = dir.isDirectory() ? dir.listFiles() : null;
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isFile() && !name.endsWith(ACCESS_SUFFIX) && !name.endsWith(".tmp")) {
+                    cachedFiles.add(file);
+                }
+            }
+        }
+        return cachedFiles;
+    }
+
+    private void withLock(LockedAction action) throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(storeDir.toPath());
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(storeDir, LOCK_FILE_NAME), "rw");
+                 FileChannel channel = lockFile.getChannel();
+                 FileLock ignored = channel.lock()) {
+                action.run();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private interface LockedAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Cache lookups of a single download. Counts the artifacts taken from the cache and the artifacts downloaded.
+     */
+    public class Session implements AutoCloseable {
+        private final Log log;
+        private final long maxSize;
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger misses = new AtomicInteger();
+
+        private Session(Log log, long maxSize) {
+            this.log = log;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return true if the artifact was cached and was materialized into the target file.
+         */
+        public boolean materialize(String sha1, File target) throws IOException {
+            if (DownloadCache.this.materialize(sha1, target)) {
+                hits.incrementAndGet();
+                return true;
+            }
+            misses.incrementAndGet();
+            return false;
+        }
+
+        public void add(String sha1, File file) {
+            try {
+                DownloadCache.this.add(sha1, file);
+            } catch (IOException e) {
+                log.warn("Failed adding " + file + " to the download cache: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Logs the hit ratio of this session and evicts old artifacts if the cache grew too large.
+         */
+        public void close() {
+            int total = hits.get() + misses.get();
+            if (total > 0) {
+                log.info(String.format("Download cache: %d out of %d artifacts were taken from the node's cache (%d%%)",
+                        hits.get(), total, hits.get() * 100 / total));
+            }
+            if (misses.get() > 0) {
+                try {
+                    evict(maxSize);
+                } catch (IOException e) {
+                    log.warn("Failed evicting artifacts from the download cache: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.jfrog.hudson.util;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Processes a list of tasks by a bounded number of workers.
+ * Each worker takes tasks from a shared queue and processes them with its own state, such as an Artifactory client,
+ * so the state is never shared between threads.
+ * The processing is fail-fast: once a task fails, no new tasks are started, and the failures of the tasks which were
+ * already in progress are reported together.
+ *
+ * @param <T> The type of the tasks.
+ * @param <R> The type of the task results.
+ * @param <W> The type of the state owned by each worker.
+ */
+public abstract class FailFastExecutor<T, R, W> {
+    private final int threads;
+    private final String threadNameFormat;
+    private final ExecutorService executor;
+    private boolean rethrowFirstFailure;
+
+    /**
+     * @param threads          The maximum number of tasks processed concurrently.
+     * @param threadNameFormat The name format of the worker threads, for example "artifactory-deployer-%d".
+     */
+    protected FailFastExecutor(int threads, String threadNameFormat) {
+        this.threads = Math.max(1, threads);
+        this.threadNameFormat = threadNameFormat;
+        this.executor = null;
+    }
+
+    /**
+     * @param threads  The maximum number of tasks of a single execution processed concurrently.
+     * @param executor Runs the workers. A shared executor bounds the threads of several concurrent executions together.
+     *                 The workers are always run by the executor, even if there's a single worker.
+     */
+    protected FailFastExecutor(int threads, ExecutorService executor) {
+        this.threads = Math.max(1, threads);
+        this.threadNameFormat = null;
+        this.executor = executor;
+    }
+
+    /**
+     * @return A factory of daemon threads, named by the given format, for example "artifactory-deployer-%d".
+     */
+    public static ThreadFactory createThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+    }
+
+    /**
+     * By default, the failures are reported by a single IOException which lists the failed tasks.
+     * If set, the first failure is rethrown as is, with the other failures suppressed by it, as if the tasks were
+     * processed one by one.
+     */
+    public FailFastExecutor<T, R, W> setRethrowFirstFailure(boolean rethrowFirstFailure) {
+        this.rethrowFirstFailure = rethrowFirstFailure;
+        return this;
+    }
+
+    /**
+     * Creates the state of a worker. Called by the worker thread before it processes its first task.
+     */
+    protected abstract W createWorker() throws Exception;
+
+    protected abstract R process(W worker, T task) throws Exception;
+
+    /**
+     * Releases the state of a worker after it processed its last task. Closes the state if it is closeable.
+     */
+    protected void closeWorker(W worker) throws Exception {
+        if (worker instanceof AutoCloseable) {
+            ((AutoCloseable) worker).close();
+        }
+    }
+
+    /**
+     * @return The description of the task in the failure message.
+     */
+    protected String describe(T task) {
+        return String.valueOf(task);
+    }
+
+    /**
+     * @return The number of items of the task, used for counting the items which were not processed.
+     */
+    protected int getSize(T task) {
+        return 1;
+    }
+
+    /**
+     * @return The first line of the failure message.
+     */
+    protected String getFailureMessage(int failed, int notProcessed) {
+        String message = "Failed processing " + failed + " items";
+        return notProcessed > 0 ? message + ", " + notProcessed + " items were not processed" : message;
+    }
+
+    /**
+     * @return The results of the tasks, in the order of the tasks.
+     * @throws IOException If a task failed.
+     */
+    public List<R> execute(List<T> tasks) throws IOException, InterruptedException {
+        Queue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+        for (int i = 0; i < tasks.size(); i++) {
+            queue.add(i);
+        }
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<R>(tasks.size());
+        Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int workersCount = Math.min(threads, tasks.size());
+        if (workersCount == 1 && executor == null) {
+            runWorker(new Worker(tasks, queue, results, failures, failed), failures);
+        } else if (workersCount > 0) {
+            runWorkers(workersCount, new Worker(tasks, queue, results, failures, failed), failures, failed);
+        }
+
+        if (!failures.isEmpty()) {
+            int notProcessed = 0;
+            for (Integer index : queue) {
+                notProcessed += getSize(tasks.get(index));
+            }
+            throw createFailure(Lists.newArrayList(failures), notProcessed);
+        }
+        List<R> resultsList = Lists.newArrayListWithCapacity(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            resultsList.add(results.get(i));
+        }
+        return resultsList;
+    }
+
+    /**
+     * Runs a single worker in the calling thread.
+     */
+    private void runWorker(Worker worker, Queue<Failure> failures) throws InterruptedException {
+        try {
+            worker.call();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            failures.add(new Failure(null, e));
+        }
+    }
+
+    private void runWorkers(int workersCount, Worker worker, Queue<Failure> failures, AtomicBoolean failed)
+            throws InterruptedException {
+        ExecutorService workersExecutor = executor != null ? executor :
+                Executors.newFixedThreadPool(workersCount, createThreadFactory(threadNameFormat));
+        List<Future<Void>> futures = Lists.newArrayList();
+        try {
+            for (int i = 0; i < workersCount; i++) {
+                futures.add(workersExecutor.submit(worker));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    failures.add(new Failure(null, e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            failed.set(true);
+            // Only the workers of this execution are cancelled, since the executor may be shared
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        } finally {
+            if (executor == null) {
+                workersExecutor.shutdown();
+            }
+        }
+    }
+
+    private IOException createFailure(List<Failure> failures, int notProcessed) throws IOException, InterruptedException {
+        for (Failure failure : failures) {
+            if (failure.cause instanceof InterruptedException) {
+                throw (InterruptedException) failure.cause;
+            }
+        }
+        Throwable first = failures.get(0).cause;
+        if (rethrowFirstFailure) {
+            for (Failure failure : failures.subList(1, failures.size())) {
+                first.addSuppressed(failure.cause);
+            }
+            Throwables.propagateIfInstanceOf(first, IOException.class);
+            Throwables.propagateIfPossible(first);
+            return new IOException(first);
+        }
+
+        StringBuilder message = new StringBuilder(getFailureMessage(failures.size(), notProcessed)).append(":");
+        for (Failure failure : failures) {
+            String description = failure.task != null ? describe(failure.task) : "Worker";
+            message.append("\n").append(description).append(": ").append(failure.cause.getMessage());
+        }
+        IOException exception = new IOException(message.toString(), first);
+        for (Failure failure : failures.subList(1, failures.size())) {
+            exception.addSuppressed(failure.cause);
+        }
+        return exception;
+    }
+
+    /**
+     * Processes tasks from the queue until it is empty, or until a task of the execution fails.
+     * The same worker instance is run by all the threads of the execution, each with its own state.
+     */
+    private class Worker implements Callable<Void> {
+        private final List<T> tasks;
+        private final Queue<Integer> queue;
+        private final AtomicReferenceArray<R> results;
+        private final Queue<Failure> failures;
+        private final AtomicBoolean failed;
+
+        Worker(List<T> tasks, Queue<Integer> queue, AtomicReferenceArray<R> results, Queue<Failure> failures,
+               AtomicBoolean failed) {
+            this.tasks = tasks;
+            this.queue = queue;
+            this.results = results;
+            this.failures = failures;
+            this.failed = failed;
+        }
+
+        public Void call() throws Exception {
+            W worker = createWorker();
+            try {
+                while (!failed.get()) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    Integer index = queue.poll();
+                    if (index == null) {
+                        break;
+                    }
+                    T task = tasks.get(index);
+                    try {
+                        results.set(index, process(worker, task));
+                    } catch (Exception e) {
+                        failed.set(true);
+                        failures.add(new Failure(task, e));
+                    }
+                }
+            } finally {
+                closeWorker(worker);
+            }
+            return null;
+        }
+    }
+
+    private class Failure {
+        private final T task;
+        private final Throwable cause;
+
+        Failure(T task, Throwable cause) {
+            this.task = task;
+            this.cause = cause;
+        }
+    }
+}
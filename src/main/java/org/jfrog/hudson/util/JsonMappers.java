@@ -0,0 +1,49 @@
+package org.jfrog.hudson.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared Jackson mappers, and readers and writers per type.
+ * Creating a mapper is expensive, since each mapper introspects the types it handles and caches their serializers
+ * and deserializers. The mappers are thread safe once configured, so they must not be reconfigured by their users.
+ */
+public class JsonMappers {
+    // Ignores unknown properties and omits null values. Used for data which is written and read by the plugin.
+    private static final ObjectMapper lenientMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    // Default configuration. Used for user input, so that unknown arguments are reported.
+    private static final ObjectMapper strictMapper = new ObjectMapper();
+
+    private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    public static ObjectMapper lenientMapper() {
+        return lenientMapper;
+    }
+
+    public static ObjectMapper strictMapper() {
+        return strictMapper;
+    }
+
+    /**
+     * @return A reader of the type, configured as the lenient mapper.
+     */
+    public static ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, lenientMapper::readerFor);
+    }
+
+    /**
+     * @return A writer of the type, configured as the lenient mapper.
+     */
+    public static ObjectWriter writer(Class<?> type) {
+        return writers.computeIfAbsent(type, lenientMapper::writerFor);
+    }
+}
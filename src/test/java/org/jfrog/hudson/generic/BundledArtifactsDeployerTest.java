@@ -0,0 +1,50 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BundledArtifactsDeployerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void bundlesSmallFilesPerDirectory() throws Exception {
+        List<DeployDetails> artifacts = Lists.newArrayList();
+        artifacts.addAll(createArtifacts("dir1", 1200, 1));
+        artifacts.addAll(createArtifacts("dir2", 3, 1));
+        artifacts.addAll(createArtifacts("dir3", 10, (int) BundledArtifactsDeployer.MAX_FILE_SIZE + 1));
+
+        List<DeployDetails> notBundled = Lists.newArrayList();
+        List<List<DeployDetails>> bundles = new BundledArtifactsDeployer(null).createBundles(artifacts, notBundled);
+
+        assertEquals(2, bundles.size());
+        assertEquals(1000, bundles.get(0).size());
+        assertEquals(200, bundles.get(1).size());
+        assertEquals("dir1/file-0", bundles.get(0).get(0).getArtifactPath());
+        // Directories with few files and large files are deployed one by one
+        assertEquals(13, notBundled.size());
+    }
+
+    private List<DeployDetails> createArtifacts(String directory, int count, int size) throws Exception {
+        List<DeployDetails> artifacts = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            File file = new File(temp.getRoot(), directory + "/file-" + i);
+            FileUtils.writeByteArrayToFile(file, new byte[size]);
+            artifacts.add(new DeployDetails.Builder()
+                    .file(file)
+                    .artifactPath(directory + "/file-" + i)
+                    .targetRepository("libs-release-local")
+                    .build());
+        }
+        return artifacts;
+    }
+}
@@ -0,0 +1,115 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.extractor.clientConfiguration.util.PublishedItemsHelper;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the scanner with {@link PublishedItemsHelper#buildPublishingData}, which walks the workspace once per pattern.
+ */
+@RunWith(Parameterized.class)
+public class MultiPatternFileScannerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final String pattern;
+    private final String targetPath;
+    private File workspace;
+
+    public MultiPatternFileScannerTest(String description, String pattern, String targetPath) {
+        this.pattern = pattern;
+        this.targetPath = targetPath;
+    }
+
+    @Parameterized.Parameters(name = "{0}: {1} => {2}")
+    public static Collection<Object[]> patterns() {
+        return Arrays.asList(new Object[][]{
+                {"wildcards", "lib/**/*.jar", "libs"},
+                {"all files", "**", ""},
+                {"all files under directory", "lib/**", "libs"},
+                {"trailing slash", "lib/", "libs"},
+                {"directory without wildcards", "lib", "libs"},
+                {"nested directory without wildcards", "lib/sub", "libs"},
+                {"target ending in slash", "lib/**/*.jar", "libs/"},
+                {"directory with target ending in slash", "lib", "libs/"},
+                {"single file", "a.txt", "root"},
+                {"single file with target ending in slash", "a.txt", "root/"},
+                {"single segment wildcard", "lib/*/c.jar", "libs"},
+                {"question mark", "lib/?.jar", "libs"},
+                {"default excludes", "**/*", "all"},
+                {"followed links", "linked/**/*.jar", "links"},
+                {"absolute pattern", "${workspace}/lib/**/*.jar", "libs"},
+                {"no matches", "missing/**/*.jar", "libs"}
+        });
+    }
+
+    @Before
+    public void createWorkspace() throws Exception {
+        workspace = temp.newFolder("workspace");
+        for (String path : new String[]{"a.txt", "lib/b.jar", "lib/sub/c.jar", "lib/sub/deep/d.jar", "lib/sub/e.txt",
+                "lib/.git/config", "lib/.svn/entries", "lib/CVS/Root", "lib/f.jar~", "lib/.DS_Store", "docs/readme.md"}) {
+            FileUtils.writeStringToFile(new File(workspace, path), path);
+        }
+    }
+
+    @Test
+    public void matchesPublishedItemsHelper() throws Exception {
+        if (pattern.startsWith("linked/")) {
+            try {
+                Files.createSymbolicLink(new File(workspace, "linked").toPath(), new File(workspace, "lib").toPath());
+            } catch (UnsupportedOperationException | IOException e) {
+                Assume.assumeNoException(e);
+            }
+        }
+        String resolvedPattern = pattern.replace("${workspace}", workspace.getAbsolutePath());
+        Multimap<String, String> expected = toPaths(PublishedItemsHelper.buildPublishingData(workspace, resolvedPattern, targetPath));
+
+        Multimap<String, String> patternPairs = ArrayListMultimap.create();
+        patternPairs.put(resolvedPattern, targetPath);
+        MultiPatternFileScanner scanner = new MultiPatternFileScanner(workspace, patternPairs);
+        assertEquals(expected, toPaths(scanner.scan(false)));
+        assertEquals(expected.size(), scanner.getMatchesCount(resolvedPattern));
+        assertEquals(expected, toPaths(scanner.scan(true)));
+    }
+
+    @Test
+    public void combinedScanMatchesSeparateScans() throws Exception {
+        String resolvedPattern = pattern.replace("${workspace}", workspace.getAbsolutePath());
+        Multimap<String, String> patternPairs = ArrayListMultimap.create();
+        patternPairs.put(resolvedPattern, targetPath);
+        patternPairs.put("docs/*.md", "docs/");
+        Multimap<String, String> expected = HashMultimap.create();
+        expected.putAll(toPaths(PublishedItemsHelper.buildPublishingData(workspace, resolvedPattern, targetPath)));
+        expected.putAll(toPaths(PublishedItemsHelper.buildPublishingData(workspace, "docs/*.md", "docs/")));
+
+        assertEquals(expected, toPaths(new MultiPatternFileScanner(workspace, patternPairs).scan(true)));
+    }
+
+    private static Multimap<String, String> toPaths(Multimap<String, File> publishingData) {
+        Multimap<String, String> paths = HashMultimap.create();
+        if (publishingData != null) {
+            for (Map.Entry<String, File> entry : publishingData.entries()) {
+                paths.put(entry.getKey(), entry.getValue().getAbsoluteFile().toPath().normalize().toString());
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,189 @@
+package org.jfrog.hudson.generic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import hudson.model.TaskListener;
+import org.apache.commons.io.FileUtils;
+import org.jfrog.build.extractor.clientConfiguration.deploy.DeployDetails;
+import org.jfrog.hudson.util.ChecksumCalculator;
+import org.jfrog.hudson.util.JenkinsBuildInfoLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelArtifactsDeployerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void keepsTheOrderOfTheArtifacts() throws Exception {
+        List<DeployDetails> artifacts = Lists.newArrayList();
+        artifacts.addAll(createArtifacts("dir1", 3));
+        artifacts.addAll(createArtifacts("dir2", 15));
+        artifacts.addAll(createArtifacts("dir3", 5));
+
+        TestDeployer deployer = new TestDeployer(4, null);
+        deployer.setBundledArtifactsDeployer(new BundledArtifactsDeployer(new JenkinsBuildInfoLog(TaskListener.NULL)) {
+            @Override
+            public List<DeployDetails> deployBundle(ArtifactsUploadClient client, List<DeployDetails> bundle) {
+                return bundle;
+            }
+        });
+        List<DeployDetails> deployed = deployer.deploy(artifacts);
+
+        // The bundle of dir2 is deployed first, but the results keep the order of the artifacts to deploy
+        assertEquals(artifacts, deployed);
+        assertEquals(8, deployer.deployedCount.get());
+    }
+
+    @Test
+    public void stopsDeployingAfterAFailure() throws Exception {
+        List<DeployDetails> artifacts = createArtifacts("dir", 100);
+        TestDeployer deployer = new TestDeployer(1, "dir/file-2");
+        try {
+            deployer.deploy(artifacts);
+            fail("The deployment should fail");
+        } catch (IOException e) {
+            assertEquals("Failed deploying 1 artifacts, 97 artifacts were not deployed:\n" +
+                    "libs-release-local/dir/file-2: Deployment of dir/file-2 failed", e.getMessage());
+            assertEquals("Deployment of dir/file-2 failed", e.getCause().getMessage());
+        }
+        assertEquals(2, deployer.deployedCount.get());
+    }
+
+    @Test
+    public void aggregatesTheFailuresOfConcurrentDeployments() throws Exception {
+        final int threads = 3;
+        List<DeployDetails> artifacts = createArtifacts("dir", 100);
+        final CountDownLatch started = new CountDownLatch(threads);
+        final Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+        TestDeployer deployer = new TestDeployer(threads, null) {
+            @Override
+            protected DeployDetails deployArtifact(ArtifactsUploadClient client, DeployDetails deployDetails) throws IOException {
+                workerThreads.add(Thread.currentThread().getName());
+                // All the workers fail their first deployment together
+                started.countDown();
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new IOException("Deployment of " + deployDetails.getArtifactPath() + " failed");
+            }
+        };
+        try {
+            deployer.deploy(artifacts);
+            fail("The deployment should fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(
+                    "Failed deploying 3 artifacts, 97 artifacts were not deployed:\nlibs-release-local/dir/file-"));
+            assertEquals(threads + 1, e.getMessage().split("\n").length);
+            assertEquals(threads - 1, e.getSuppressed().length);
+        }
+        assertEquals(threads, workerThreads.size());
+        for (String thread : workerThreads) {
+            assertTrue(thread, thread.startsWith("artifactory-deployer-"));
+        }
+    }
+
+    @Test
+    public void countsTheArtifactsDeployedByChecksum() throws Exception {
+        List<DeployDetails> artifacts = Lists.newArrayList();
+        artifacts.addAll(createArtifacts("existing", 3, 20 * 1024, "0123456789abcdef0123456789abcdef01234567"));
+        artifacts.addAll(createArtifacts("new", 2, 20 * 1024, "76543210fedcba9876543210fedcba9876543210"));
+        // Below the minimal size of checksum deploy
+        artifacts.addAll(createArtifacts("small", 4, 1, "0123456789abcdef0123456789abcdef01234567"));
+        final AtomicInteger uploaded = new AtomicInteger();
+        ParallelArtifactsDeployer deployer = new ParallelArtifactsDeployer(null, null, null, 2, new JenkinsBuildInfoLog(TaskListener.NULL)) {
+            @Override
+            protected ArtifactsUploadClient createClient() {
+                return new ArtifactsUploadClient("http://localhost:8081/artifactory", null, null, new JenkinsBuildInfoLog(TaskListener.NULL)) {
+                    @Override
+                    public boolean deployByChecksum(DeployDetails details) {
+                        return details.getArtifactPath().startsWith("existing/");
+                    }
+
+                    @Override
+                    public Map<String, String> upload(DeployDetails details) {
+                        uploaded.incrementAndGet();
+                        Map<String, String> checksums = Maps.newHashMap();
+                        checksums.put(ChecksumCalculator.SHA1, "76543210fedcba9876543210fedcba9876543210");
+                        checksums.put(ChecksumCalculator.MD5, "76543210fedcba9876543210fedcba98");
+                        return checksums;
+                    }
+                };
+            }
+        };
+
+        List<DeployDetails> deployed = deployer.deploy(artifacts);
+        assertEquals(artifacts.size(), deployed.size());
+        for (int i = 0; i < artifacts.size(); i++) {
+            assertEquals(artifacts.get(i).getArtifactPath(), deployed.get(i).getArtifactPath());
+        }
+        // The uploaded artifacts carry the checksums calculated while they were uploaded
+        assertEquals("76543210fedcba9876543210fedcba98", deployed.get(4).getMd5());
+        assertEquals(3, deployer.getDeployedByChecksum());
+        assertEquals(3 * 20 * 1024, deployer.getBytesSaved());
+        assertEquals(6, uploaded.get());
+    }
+
+    private List<DeployDetails> createArtifacts(String directory, int count) throws IOException {
+        return createArtifacts(directory, count, 1, null);
+    }
+
+    private List<DeployDetails> createArtifacts(String directory, int count, int size, String sha1) throws IOException {
+        List<DeployDetails> artifacts = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            File file = new File(temp.getRoot(), directory + "/file-" + i);
+            FileUtils.writeByteArrayToFile(file, new byte[size]);
+            artifacts.add(new DeployDetails.Builder()
+                    .file(file)
+                    .artifactPath(directory + "/file-" + i)
+                    .targetRepository("libs-release-local")
+                    .sha1(sha1)
+                    .build());
+        }
+        return artifacts;
+    }
+
+    /**
+     * Deploys without a server. Fails the deployment of the given path.
+     */
+    private static class TestDeployer extends ParallelArtifactsDeployer {
+        private final String failingPath;
+        private final AtomicInteger deployedCount = new AtomicInteger();
+
+        TestDeployer(int threads, String failingPath) {
+            super(null, null, null, threads, new JenkinsBuildInfoLog(TaskListener.NULL));
+            this.failingPath = failingPath;
+        }
+
+        @Override
+        protected ArtifactsUploadClient createClient() {
+            return null;
+        }
+
+        @Override
+        protected DeployDetails deployArtifact(ArtifactsUploadClient client, DeployDetails deployDetails) throws IOException {
+            if (deployDetails.getArtifactPath().equals(failingPath)) {
+                throw new IOException("Deployment of " + failingPath + " failed");
+            }
+            deployedCount.incrementAndGet();
+            return deployDetails;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.jfrog.hudson.pipeline.common.docker.utils;
+
+import com.google.common.collect.ArrayListMultimap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Registers and collects docker images from many concurrent builds.
+ */
+public class DockerAgentUtilsTest {
+    private static final int BUILDS = 32;
+    private static final int IMAGES_PER_BUILD = 200;
+
+    @Test
+    public void concurrentBuildsRegisterAndCollectIndependently() throws Exception {
+        int initialCount = DockerAgentUtils.getCachedImagesCount();
+        ExecutorService executor = Executors.newFixedThreadPool(BUILDS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int build = 0; build < BUILDS; build++) {
+                final int buildInfoId = 1000000 + build;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        for (int i = 0; i < IMAGES_PER_BUILD; i++) {
+                            DockerAgentUtils.registerImage("sha256:" + i, "image:" + i, "docker-local",
+                                    ArrayListMultimap.<String, String>create(), buildInfoId);
+                        }
+                        // None of the images has a manifest, since there's no build-info proxy to capture them
+                        return DockerAgentUtils.getAndDiscardImagesByBuildId(buildInfoId).size();
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, (int) future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(initialCount, DockerAgentUtils.getCachedImagesCount());
+    }
+}
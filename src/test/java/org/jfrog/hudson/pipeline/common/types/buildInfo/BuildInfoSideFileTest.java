@@ -0,0 +1,76 @@
+package org.jfrog.hudson.pipeline.common.types.buildInfo;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.jfrog.build.api.Artifact;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BuildInfoSideFileTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void readsAppendedEntriesInOrder() throws Exception {
+        BuildInfoSideFile<Artifact> sideFile = new BuildInfoSideFile<Artifact>(new File(temp.getRoot(), "dir/artifacts.json"), Artifact.class);
+        sideFile.append(createArtifacts("a", 3));
+        sideFile.append(createArtifacts("b", 2));
+
+        List<Artifact> artifacts = sideFile.read();
+        assertEquals(5, sideFile.size());
+        assertEquals(5, artifacts.size());
+        assertEquals("a-0", artifacts.get(0).getName());
+        assertEquals("a-0", artifacts.get(0).getSha1());
+        assertEquals("b-1", artifacts.get(4).getName());
+    }
+
+    @Test
+    public void resumedSideFileDropsEntriesAppendedAfterCheckpoint() throws Exception {
+        BuildInfoSideFile<Artifact> sideFile = new BuildInfoSideFile<Artifact>(temp.newFile("artifacts.json"), Artifact.class);
+        sideFile.append(createArtifacts("a", 2));
+        @SuppressWarnings("unchecked")
+        BuildInfoSideFile<Artifact> checkpoint = (BuildInfoSideFile<Artifact>) SerializationUtils.clone(sideFile);
+        sideFile.append(createArtifacts("b", 2));
+
+        checkpoint.append(createArtifacts("c", 1));
+        List<Artifact> artifacts = checkpoint.read();
+        assertEquals(3, artifacts.size());
+        assertEquals("a-1", artifacts.get(1).getName());
+        assertEquals("c-0", artifacts.get(2).getName());
+    }
+
+    @Test
+    public void streamsTheEntriesAfterTheGivenHead() throws Exception {
+        BuildInfoSideFile<Artifact> sideFile = new BuildInfoSideFile<Artifact>(temp.newFile("artifacts.json"), Artifact.class);
+        // More than a single read batch
+        sideFile.append(createArtifacts("a", 2500));
+        List<Artifact> view = sideFile.asList(createArtifacts("head", 2));
+        // Entries appended after the view was created are not part of it
+        sideFile.append(createArtifacts("b", 1));
+
+        assertEquals(2502, view.size());
+        int count = 0;
+        for (Artifact artifact : view) {
+            String expected = count < 2 ? "head-" + count : "a-" + (count - 2);
+            assertEquals(expected, artifact.getName());
+            count++;
+        }
+        assertEquals(2502, count);
+        assertEquals("a-1500", view.get(1502).getName());
+    }
+
+    private static List<Artifact> createArtifacts(String prefix, int count) {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for (int i = 0; i < count; i++) {
+            artifacts.add(new ArtifactBuilder(prefix + "-" + i).sha1(prefix + "-" + i).build());
+        }
+        return artifacts;
+    }
+}
@@ -0,0 +1,67 @@
+package org.jfrog.hudson.pipeline.common.types.buildInfo;
+
+import org.jfrog.build.api.Artifact;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Appends many partial build-infos with overlapping modules.
+ */
+public class BuildInfoTest {
+    private static final int MODULES = 10000;
+    private static final int BUILDS = 5;
+
+    @Test
+    public void appendMergesModulesWithTheSameId() {
+        BuildInfo buildInfo = new BuildInfo();
+        for (int build = 0; build < BUILDS; build++) {
+            List<Module> modules = new ArrayList<Module>();
+            for (int i = 0; i < MODULES; i++) {
+                modules.add(createModule("module-" + i, "artifact-" + build + "-" + i));
+            }
+            Build other = new Build();
+            other.setModules(modules);
+            buildInfo.append(other);
+        }
+
+        List<Module> modules = buildInfo.getModules();
+        assertEquals(MODULES, modules.size());
+        for (int i = 0; i < MODULES; i++) {
+            Module module = modules.get(i);
+            assertEquals("module-" + i, module.getId());
+            assertEquals(BUILDS, module.getArtifacts().size());
+        }
+    }
+
+    @Test
+    public void appendMergesIntoModulesAddedFromOutside() {
+        BuildInfo buildInfo = new BuildInfo();
+        Module existing = createModule("docker-image", "layer-1");
+        buildInfo.getModules().add(existing);
+
+        Build other = new Build();
+        List<Module> modules = new ArrayList<Module>();
+        modules.add(createModule("docker-image", "layer-2"));
+        other.setModules(modules);
+        buildInfo.append(other);
+
+        assertEquals(1, buildInfo.getModules().size());
+        assertSame(existing, buildInfo.getModules().get(0));
+        assertEquals(2, existing.getArtifacts().size());
+    }
+
+    private static Module createModule(String id, String artifactName) {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        artifacts.add(new ArtifactBuilder(artifactName).sha1(artifactName).build());
+        return new ModuleBuilder().id(id).artifacts(artifacts).build();
+    }
+}
@@ -0,0 +1,137 @@
+package org.jfrog.hudson.pipeline.declarative.utils;
+
+import hudson.FilePath;
+import hudson.util.StreamTaskListener;
+import org.jfrog.hudson.pipeline.declarative.BuildDataFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BuildDataFileCacheTest {
+    private static final String RUN_ID = "job#1";
+    private static final String BUILD_NUMBER = "1";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void readsTheDataBeforeItIsWritten() throws Exception {
+        FilePath ws = new FilePath(temp.newFolder("ws"));
+        QueuedExecutor writer = new QueuedExecutor();
+        BuildDataFileCache cache = new BuildDataFileCache(writer);
+
+        cache.write(ws, RUN_ID, BUILD_NUMBER, new BuildDataFile("rtServer", "server").put("url", "http://a"));
+        assertEquals(1, writer.tasks.size());
+        assertEquals("http://a", cache.read(ws, RUN_ID, BUILD_NUMBER, "rtServer", "server").get("url").asText());
+        // The data is not shared with the runs which didn't write it
+        assertNull(cache.read(ws, "job#2", "2", "rtServer", "server"));
+    }
+
+    @Test
+    public void coalescesTheWritesOfTheSameFile() throws Exception {
+        FilePath ws = new FilePath(temp.newFolder("ws"));
+        QueuedExecutor writer = new QueuedExecutor();
+        BuildDataFileCache cache = new BuildDataFileCache(writer);
+
+        for (int i = 0; i < 3; i++) {
+            cache.write(ws, RUN_ID, BUILD_NUMBER, new BuildDataFile("rtServer", "server").put("url", "http://" + i));
+        }
+        assertEquals(1, writer.tasks.size());
+        writer.runAll();
+
+        // The agent file has the latest data
+        BuildDataFileCache otherMaster = new BuildDataFileCache(new QueuedExecutor());
+        assertEquals("http://2", otherMaster.read(ws, RUN_ID, BUILD_NUMBER, "rtServer", "server").get("url").asText());
+    }
+
+    @Test
+    public void reportsAFailedWriteOnce() throws Exception {
+        FilePath ws = new FilePath(temp.newFolder("ws"));
+        // The temp dir of the workspace can't be created
+        assertTrue(new File(temp.getRoot(), "ws@tmp").createNewFile());
+        QueuedExecutor writer = new QueuedExecutor();
+        BuildDataFileCache cache = new BuildDataFileCache(writer);
+
+        cache.write(ws, RUN_ID, BUILD_NUMBER, new BuildDataFile("rtServer", "server"));
+        writer.runAll();
+        try {
+            cache.read(ws, RUN_ID, BUILD_NUMBER, "rtServer", "server");
+            fail("The failed write should be reported");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed writing build data file of rtServer 'server'"));
+        }
+        assertEquals("server", cache.read(ws, RUN_ID, BUILD_NUMBER, "rtServer", "server").getId());
+    }
+
+    @Test
+    public void flushesAndDropsTheDataWhenTheRunCompletes() throws Exception {
+        FilePath ws = new FilePath(temp.newFolder("ws"));
+        assertTrue(new File(temp.getRoot(), "ws@tmp").createNewFile());
+        QueuedExecutor writer = new QueuedExecutor();
+        BuildDataFileCache cache = new BuildDataFileCache(writer);
+        cache.write(ws, RUN_ID, BUILD_NUMBER, new BuildDataFile("rtServer", "server"));
+
+        // The pending write is done by the completion of the run, which reports its failure in the build log
+        ByteArrayOutputStream buildLog = new ByteArrayOutputStream();
+        cache.completeRun(RUN_ID, new StreamTaskListener(buildLog));
+        assertTrue(buildLog.toString(), buildLog.toString().contains("Failed writing build data file of rtServer 'server'"));
+        writer.runAll();
+
+        // The entries of the run were dropped, so the data is read from the agent, where it is missing
+        assertTrue(new File(temp.getRoot(), "ws@tmp").delete());
+        assertNull(cache.read(ws, RUN_ID, BUILD_NUMBER, "rtServer", "server"));
+    }
+
+    /**
+     * Runs the background writes when the test asks to.
+     */
+    private static class QueuedExecutor extends AbstractExecutorService {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+        private boolean shutdown;
+
+        void runAll() {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            tasks.clear();
+        }
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return tasks;
+        }
+
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
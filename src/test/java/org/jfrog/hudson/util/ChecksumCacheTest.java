@@ -0,0 +1,125 @@
+package org.jfrog.hudson.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChecksumCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void checksumsAreRecalculatedOnlyWhenStale() throws Exception {
+        File cacheFile = new File(temp.getRoot(), "cache/checksums.cache");
+        File file = temp.newFile("artifact.txt");
+        writeOldFile(file, "content");
+        ChecksumCache cache = new ChecksumCache(cacheFile, 10);
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+
+        Map<String, String> checksums = cache.getChecksums(file, hits, misses);
+        assertEquals("040f06fd774092478d450774f5ba30c5da78acc8", checksums.get(ChecksumCalculator.SHA1));
+        assertEquals("9a0364b9e99bb480dd25e1f0284c8555", checksums.get(ChecksumCalculator.MD5));
+        assertEquals(checksums, cache.getChecksums(file, hits, misses));
+        assertEquals(1, hits.get());
+        assertEquals(1, misses.get());
+
+        FileUtils.writeStringToFile(file, "modified content");
+        file.setLastModified(file.lastModified() + 2000);
+        Map<String, String> modifiedChecksums = cache.getChecksums(file, hits, misses);
+        assertEquals(ChecksumCalculator.calculateChecksums(file, ChecksumCalculator.SHA1).get(ChecksumCalculator.SHA1),
+                modifiedChecksums.get(ChecksumCalculator.SHA1));
+        assertEquals(2, misses.get());
+    }
+
+    @Test
+    public void cacheIsPersistedAndBounded() throws Exception {
+        File cacheFile = new File(temp.getRoot(), "cache/checksums.cache");
+        ChecksumCache cache = new ChecksumCache(cacheFile, 2);
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+        File[] files = new File[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = temp.newFile("artifact" + i);
+            writeOldFile(files[i], "content" + i);
+            cache.getChecksums(files[i], hits, misses);
+        }
+        assertEquals(2, cache.size());
+        cache.save();
+
+        ChecksumCache reloaded = new ChecksumCache(cacheFile, 2);
+        reloaded.getChecksums(files[2], hits, misses);
+        assertEquals(1, hits.get());
+        // The least recently used entry was evicted
+        reloaded.getChecksums(files[0], hits, misses);
+        assertEquals(4, misses.get());
+    }
+
+    @Test
+    public void recordedChecksumsAreNotRecalculated() throws Exception {
+        ChecksumCache cache = new ChecksumCache(new File(temp.getRoot(), "cache/checksums.cache"), 10);
+        File file = temp.newFile("downloaded.txt");
+        writeOldFile(file, "content");
+        Map<String, String> checksums = ChecksumCalculator.calculateChecksums(file, ChecksumCalculator.SHA1, ChecksumCalculator.MD5);
+        cache.put(file, checksums);
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+
+        assertEquals(checksums, cache.getChecksums(file, hits, misses));
+        assertEquals(1, hits.get());
+        assertEquals(0, misses.get());
+    }
+
+    @Test
+    public void cachedLookupsDontReadTheFile() throws Exception {
+        ChecksumCache cache = new ChecksumCache(new File(temp.getRoot(), "cache/checksums.cache"), 10);
+        File file = temp.newFile("uploaded.txt");
+        writeOldFile(file, "content");
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+
+        assertNull(cache.getCachedChecksums(file, hits, misses));
+        Map<String, String> checksums = ChecksumCalculator.calculateChecksums(file, ChecksumCalculator.SHA1, ChecksumCalculator.MD5);
+        cache.put(file, checksums);
+        assertEquals(checksums, cache.getCachedChecksums(file, hits, misses));
+        assertEquals(1, hits.get());
+        assertEquals(1, misses.get());
+    }
+
+    @Test
+    public void recentlyModifiedFilesAreRehashed() throws Exception {
+        ChecksumCache cache = new ChecksumCache(new File(temp.getRoot(), "cache/checksums.cache"), 10);
+        File file = temp.newFile("artifact.txt");
+        FileUtils.writeStringToFile(file, "content");
+        long lastModified = file.lastModified();
+        AtomicInteger hits = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+        cache.getChecksums(file, hits, misses);
+
+        // A rewrite of the same size within the time granularity of the file system keeps the modification time
+        FileUtils.writeStringToFile(file, "CONTENT");
+        file.setLastModified(lastModified);
+        Map<String, String> checksums = cache.getChecksums(file, hits, misses);
+        assertEquals(ChecksumCalculator.calculateChecksums(file, ChecksumCalculator.SHA1).get(ChecksumCalculator.SHA1),
+                checksums.get(ChecksumCalculator.SHA1));
+        assertEquals(0, hits.get());
+        assertEquals(2, misses.get());
+    }
+
+    /**
+     * Writes a file which was last modified long before its checksums are recorded.
+     */
+    private static void writeOldFile(File file, String content) throws Exception {
+        FileUtils.writeStringToFile(file, content);
+        file.setLastModified(System.currentTimeMillis() - 60000);
+    }
+}
@@ -0,0 +1,88 @@
+package org.jfrog.hudson.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadCacheTest {
+    private static final String CONTENT_SHA1 = "040f06fd774092478d450774f5ba30c5da78acc8";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void downloadedArtifactIsMaterializedIntoAnotherWorkspace() throws Exception {
+        DownloadCache cache = new DownloadCache(new File(temp.getRoot(), "downloads"),
+                new File(temp.getRoot(), "checksums.cache").getPath());
+        File downloaded = new File(temp.newFolder("workspace1"), "lib/artifact.jar");
+        FileUtils.writeStringToFile(downloaded, "content");
+        File target = new File(temp.getRoot(), "workspace2/lib/artifact.jar");
+
+        assertFalse(cache.materialize(CONTENT_SHA1, target));
+        cache.add(CONTENT_SHA1, downloaded);
+        assertTrue(cache.materialize(CONTENT_SHA1, target));
+        assertEquals("content", FileUtils.readFileToString(target));
+    }
+
+    @Test
+    public void workspaceFilesDontShareTheirContentWithTheCache() throws Exception {
+        File storeDir = new File(temp.getRoot(), "downloads");
+        DownloadCache cache = new DownloadCache(storeDir, new File(temp.getRoot(), "checksums.cache").getPath());
+        File downloaded = temp.newFile("downloaded.jar");
+        FileUtils.writeStringToFile(downloaded, "content");
+        cache.add(CONTENT_SHA1, downloaded);
+        File target = new File(temp.getRoot(), "target.jar");
+        assertTrue(cache.materialize(CONTENT_SHA1, target));
+
+        // Both the downloaded file and the materialized file can be modified without affecting the cache
+        assertTrue(downloaded.canWrite());
+        assertTrue(target.canWrite());
+        FileUtils.writeStringToFile(downloaded, "modified content");
+        FileUtils.writeStringToFile(target, "modified content");
+        assertEquals("content", FileUtils.readFileToString(new File(storeDir, "04/" + CONTENT_SHA1)));
+    }
+
+    @Test
+    public void modifiedArtifactIsNotMaterialized() throws Exception {
+        File storeDir = new File(temp.getRoot(), "downloads");
+        DownloadCache cache = new DownloadCache(storeDir, new File(temp.getRoot(), "checksums.cache").getPath());
+        File downloaded = temp.newFile("artifact.jar");
+        FileUtils.writeStringToFile(downloaded, "content");
+        cache.add(CONTENT_SHA1, downloaded);
+
+        // Modifies the cached artifact in place, after making it writable
+        File cached = new File(storeDir, "04/" + CONTENT_SHA1);
+        cached.setWritable(true);
+        FileUtils.writeStringToFile(cached, "modified content");
+        assertFalse(cache.materialize(CONTENT_SHA1, new File(temp.getRoot(), "target.jar")));
+    }
+
+    @Test
+    public void leastRecentlyUsedArtifactsAreEvicted() throws Exception {
+        File storeDir = new File(temp.getRoot(), "downloads");
+        DownloadCache cache = new DownloadCache(storeDir, null);
+        String[] sha1s = {"aa00000000000000000000000000000000000000", "bb00000000000000000000000000000000000000",
+                "cc00000000000000000000000000000000000000"};
+        long time = System.currentTimeMillis() - 60000;
+        for (String sha1 : sha1s) {
+            File file = temp.newFile(sha1);
+            FileUtils.writeStringToFile(file, "12345");
+            cache.add(sha1, file);
+            new File(storeDir, sha1.substring(0, 2) + "/" + sha1 + ".access").setLastModified(time += 10000);
+        }
+        // Uses the first artifact, so the second is the least recently used
+        assertTrue(cache.materialize(sha1s[0], new File(temp.getRoot(), "target")));
+
+        cache.evict(10);
+        assertTrue(new File(storeDir, "aa/" + sha1s[0]).exists());
+        assertFalse(new File(storeDir, "bb/" + sha1s[1]).exists());
+        assertTrue(new File(storeDir, "cc/" + sha1s[2]).exists());
+    }
+}
@@ -0,0 +1,31 @@
+package org.jfrog.hudson.util;
+
+import org.jfrog.build.api.Artifact;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class JsonMappersTest {
+
+    @Test
+    public void readersAndWritersAreSharedPerType() {
+        assertSame(JsonMappers.reader(Artifact.class), JsonMappers.reader(Artifact.class));
+        assertSame(JsonMappers.writer(Artifact.class), JsonMappers.writer(Artifact.class));
+    }
+
+    @Test
+    public void readerIgnoresUnknownPropertiesAndWriterOmitsNulls() throws Exception {
+        Artifact artifact = JsonMappers.reader(Artifact.class).readValue("{\"name\":\"a.jar\",\"unknown\":1}");
+        assertEquals("a.jar", artifact.getName());
+        assertFalse(JsonMappers.writer(Artifact.class).writeValueAsString(artifact).contains("null"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void strictMapperRejectsUnknownProperties() {
+        JsonMappers.strictMapper().convertValue(Collections.singletonMap("unknown", 1), Artifact.class);
+    }
+}